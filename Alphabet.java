@@ -1,5 +1,7 @@
 package enigma;
 
+import java.util.Arrays;
+
 import static enigma.EnigmaException.*;
 
 /** An alphabet of encodable characters.  Provides a mapping from characters
@@ -9,16 +11,11 @@ import static enigma.EnigmaException.*;
 class Alphabet {
 
     /** A new alphabet containing CHARS.  Character number #k has index
-     *  K (numbering from 0). No character may be duplicated. */
+     *  K (numbering from 0). No character may be duplicated.  CHARS may
+     *  contain supplementary code points, each of which counts as a
+     *  single character. */
     Alphabet(String chars) {
-        _chars = "";
-        for (int i = 0; i < chars.length(); i++) {
-            char c = chars.charAt(i);
-            if (_chars.indexOf(c) != -1) {
-                throw error("Input alphabet has a repeated character");
-            }
-            _chars += c;
-        }
+        this(chars.codePoints().toArray());
     }
 
     /** A default alphabet of all upper-case characters. */
@@ -26,29 +23,169 @@ class Alphabet {
         this("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
     }
 
+    /** A new alphabet whose character #k is the code point SYMBOLS[K].
+     *  No code point may be duplicated. */
+    private Alphabet(int[] symbols) {
+        _symbols = symbols;
+        int min = Integer.MAX_VALUE, max = -1;
+        for (int cp : symbols) {
+            min = Math.min(min, cp);
+            max = Math.max(max, cp);
+        }
+        _supplementary = max > Character.MAX_VALUE;
+        if (symbols.length == 0) {
+            _base = 0;
+            _direct = new int[0];
+        } else if ((long) max - min < Math.max(DIRECT_SLACK,
+                                               4L * symbols.length)) {
+            _base = min;
+            _direct = new int[max - min + 1];
+            Arrays.fill(_direct, -1);
+            for (int i = 0; i < symbols.length; i += 1) {
+                if (_direct[symbols[i] - min] != -1) {
+                    throw error("Input alphabet has a repeated character");
+                }
+                _direct[symbols[i] - min] = i;
+            }
+        } else {
+            int capacity = Integer.highestOneBit(symbols.length) << 2;
+            _hashShift = Integer.numberOfLeadingZeros(capacity - 1);
+            _keys = new int[capacity];
+            _values = new int[capacity];
+            Arrays.fill(_keys, -1);
+            for (int i = 0; i < symbols.length; i += 1) {
+                int slot = slot(symbols[i]);
+                if (_keys[slot] == symbols[i]) {
+                    throw error("Input alphabet has a repeated character");
+                }
+                _keys[slot] = symbols[i];
+                _values[slot] = i;
+            }
+        }
+    }
+
+    /** Return the alphabet described by SPEC, in which each occurrence of
+     *  "x-y" stands for all code points from x through y inclusive, in
+     *  order, so that "A-Z0-9" denotes the 36 upper-case letters and
+     *  digits.  A '-' at the beginning or end of SPEC stands for itself. */
+    static Alphabet ranges(String spec) {
+        int[] cps = spec.codePoints().toArray();
+        int n = 0;
+        for (int i = 0; i < cps.length; i += 1) {
+            if (i + 2 < cps.length && cps[i + 1] == '-') {
+                if (cps[i + 2] < cps[i]) {
+                    throw error("bad alphabet range");
+                }
+                n += cps[i + 2] - cps[i] + 1;
+                i += 2;
+            } else {
+                n += 1;
+            }
+        }
+        int[] symbols = new int[n];
+        n = 0;
+        for (int i = 0; i < cps.length; i += 1) {
+            if (i + 2 < cps.length && cps[i + 1] == '-') {
+                for (int cp = cps[i]; cp <= cps[i + 2]; cp += 1) {
+                    symbols[n++] = cp;
+                }
+                i += 2;
+            } else {
+                symbols[n++] = cps[i];
+            }
+        }
+        return new Alphabet(symbols);
+    }
+
     /** Returns the size of the alphabet. */
     int size() {
-        return _chars.length();
+        return _symbols.length;
+    }
+
+    /** Returns true iff some character of this alphabet is a
+     *  supplementary code point, and so cannot be handled as a char. */
+    boolean supplementary() {
+        return _supplementary;
     }
 
     /** Returns true if CH is in this alphabet. */
     boolean contains(char ch) {
-        return (_chars.indexOf(ch) != -1);
+        return codePointIndex(ch) != -1;
     }
 
     /** Returns character number INDEX in the alphabet, where
-     *  0 <= INDEX < size(). */
+     *  0 <= INDEX < size().  That character must not be a supplementary
+     *  code point. */
     char toChar(int index) {
-        return _chars.charAt(index);
+        int cp = _symbols[index];
+        if (cp > Character.MAX_VALUE) {
+            throw error("character #%d is not a single char", index);
+        }
+        return (char) cp;
     }
 
     /** Returns the index of character CH which must be in
      *  the alphabet. This is the inverse of toChar(). */
     int toInt(char ch) {
-        return _chars.indexOf(ch);
+        return codePointIndex(ch);
+    }
+
+    /** Returns code point number INDEX in the alphabet, where
+     *  0 <= INDEX < size(). */
+    int codePoint(int index) {
+        return _symbols[index];
+    }
+
+    /** Returns the index of code point CP, or -1 if it is not in the
+     *  alphabet. This is the inverse of codePoint(). */
+    int codePointIndex(int cp) {
+        if (_keys == null) {
+            int k = cp - _base;
+            return k >= 0 && k < _direct.length ? _direct[k] : -1;
+        }
+        int slot = slot(cp);
+        return _keys[slot] == cp ? _values[slot] : -1;
+    }
+
+    /** Returns the slot of _keys holding CP, or the empty slot where it
+     *  would go. */
+    private int slot(int cp) {
+        int mask = _keys.length - 1;
+        int slot = (cp * HASH_MULTIPLIER) >>> _hashShift;
+        while (_keys[slot] != -1 && _keys[slot] != cp) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
     }
 
-    /** Characters in my alphabet. */
-    private String _chars;
+    /** Spread of code points up to which a direct table is always used,
+     *  regardless of alphabet size. */
+    private static final int DIRECT_SLACK = 256;
+
+    /** Multiplier for Fibonacci hashing of code points. */
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    /** Code points in my alphabet, in order. */
+    private final int[] _symbols;
+
+    /** True iff some code point in _symbols is supplementary. */
+    private final boolean _supplementary;
+
+    /** Smallest code point in a dense alphabet. */
+    private int _base;
+
+    /** For dense alphabets, the index of code point _base + k at k, or
+     *  -1 if it is absent.  Null for sparse alphabets. */
+    private int[] _direct;
+
+    /** For sparse alphabets, an open-addressed hash table of code points,
+     *  with -1 marking empty slots.  Null for dense alphabets. */
+    private int[] _keys;
+
+    /** The index of the code point in the corresponding slot of _keys. */
+    private int[] _values;
+
+    /** Shift reducing a hashed code point to a slot of _keys. */
+    private int _hashShift;
 
 }
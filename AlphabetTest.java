@@ -0,0 +1,79 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the Alphabet class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class AlphabetTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testLookup() {
+        Alphabet a = new Alphabet("QWERTY");
+        assertEquals(6, a.size());
+        assertEquals(0, a.toInt('Q'));
+        assertEquals(5, a.toInt('Y'));
+        assertEquals('E', a.toChar(2));
+        assertTrue(a.contains('T'));
+        assertFalse(a.contains('A'));
+        assertEquals(-1, a.toInt('A'));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testRepeated() {
+        new Alphabet("ABCA");
+    }
+
+    @Test
+    public void testSparse() {
+        String chars = "A\u4E00\uFFEE"
+            + new String(Character.toChars(0x1F600));
+        Alphabet a = new Alphabet(chars);
+        assertEquals(4, a.size());
+        assertEquals(1, a.toInt('\u4E00'));
+        assertEquals(2, a.toInt('\uFFEE'));
+        assertEquals(3, a.codePointIndex(0x1F600));
+        assertEquals(0x1F600, a.codePoint(3));
+        assertFalse(a.contains('B'));
+        assertEquals(-1, a.codePointIndex(0x1F601));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testSparseRepeated() {
+        new Alphabet("A\u4E00\uFFEEB\u4E00");
+    }
+
+    @Test
+    public void testRanges() {
+        Alphabet a = Alphabet.ranges("A-Z0-9-");
+        assertEquals(37, a.size());
+        assertEquals(25, a.toInt('Z'));
+        assertEquals(26, a.toInt('0'));
+        assertEquals(36, a.toInt('-'));
+    }
+
+    @Test
+    public void testLarge() {
+        int n = 40000;
+        StringBuilder chars = new StringBuilder();
+        for (int i = 0; i < n; i += 1) {
+            chars.appendCodePoint(0x10000 + 7 * i);
+        }
+        Alphabet a = new Alphabet(chars.toString());
+        assertEquals(n, a.size());
+        for (int i = 0; i < n; i += 1) {
+            assertEquals(i, a.codePointIndex(0x10000 + 7 * i));
+            assertEquals(-1, a.codePointIndex(0x10001 + 7 * i));
+        }
+    }
+
+}
@@ -0,0 +1,405 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** A known-plaintext attack in the manner of the Turing-Welchman Bombe.
+ *  Given a ciphertext and a crib (a guess at part of its plaintext), a
+ *  Bombe builds a menu: the graph whose vertices are letters and which
+ *  has an edge, labeled K, between the crib letter and the ciphertext
+ *  letter at each offset K.  It then tries every rotor order and every
+ *  setting of the rotors.  For each, it hypothesizes a plugboard partner
+ *  for one test letter of the menu and propagates the consequences along
+ *  the menu and through the symmetry of the plugboard, stopping as soon
+ *  as some letter is implied to have two partners.  A hypothesis
+ *  eliminates itself and every other partner it implies for the test
+ *  letter, which are tracked as a bitset, so that few of the possible
+ *  partners need be tried.  A setting at which some hypothesis implies
+ *  a consistent set of pairs is a stop, and is reported.
+ *
+ *  Ring settings are not searched: reported rotor settings assume
+ *  rings at their default and are correct up to the turnover of slower
+ *  rotors.  Only the part of the menu connected to the test letter
+ *  constrains the search.
+ *  @author Ishaan Mauli Mishra
+ */
+class Bombe {
+
+    /** A Bombe trying the rotors available to CONFIG, in the slots
+     *  CONFIG has, on POOL. */
+    Bombe(Machine config, ForkJoinPool pool) {
+        _config = config;
+        _pool = pool;
+        _alphabet = config.alphabet();
+        _orders = config.rotorOrders();
+        long starts = 1;
+        try {
+            for (int i = 1; i < config.numRotors(); i += 1) {
+                starts = Math.multiplyExact(starts, _alphabet.size());
+            }
+            _total = Math.multiplyExact(starts, _orders.size());
+        } catch (ArithmeticException excp) {
+            throw error("too many rotor settings to search");
+        }
+        _starts = starts;
+    }
+
+    /** A Bombe trying the rotors available to CONFIG on the common
+     *  pool. */
+    Bombe(Machine config) {
+        this(config, ForkJoinPool.commonPool());
+    }
+
+    /** Returns the number of rotor orders I try. */
+    int numOrders() {
+        return _orders.size();
+    }
+
+    /** Returns the settings at which CRIB, placed OFFSET characters into
+     *  CIPHERTEXT, produces a stop, each in the form accepted after the
+     *  '*' of a settings line: rotor names, rotor settings, and the
+     *  plugboard pairs the stop implies.  Blanks in CIPHERTEXT and CRIB
+     *  are ignored.  Settings are listed by rotor order, in the order of
+     *  the rotors' names, and then by rotor setting. */
+    List<String> search(String ciphertext, String crib, int offset) {
+        int[] cipher = indices(ciphertext);
+        int[] plain = indices(crib);
+        if (offset < 0 || offset + plain.length > cipher.length) {
+            throw error("crib does not fit in ciphertext");
+        }
+        for (int k = 0; k < plain.length; k += 1) {
+            if (plain[k] == cipher[offset + k]) {
+                return new ArrayList<String>();
+            }
+        }
+        Menu menu = new Menu(plain, cipher, offset);
+        if (menu._test == -1) {
+            return new ArrayList<String>();
+        }
+        return _pool.invoke(new Search(menu, 0, _total));
+    }
+
+    /** Returns the indices in my alphabet of the non-blank characters of
+     *  TEXT. */
+    private int[] indices(String text) {
+        int[] result = new int[text.length()];
+        int n = 0;
+        for (int i = 0; i < text.length(); i += 1) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            result[n] = _alphabet.toInt(c);
+            if (result[n] == -1) {
+                throw error("character %c at position %d not in alphabet",
+                            c, i);
+            }
+            n += 1;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** The part of a menu that is connected to its test letter. */
+    private class Menu {
+
+        /** The menu of PLAIN placed OFFSET characters into CIPHER. */
+        Menu(int[] plain, int[] cipher, int offset) {
+            int n = _alphabet.size();
+            _offset = offset;
+            int[] degree = new int[n];
+            for (int k = 0; k < plain.length; k += 1) {
+                degree[plain[k]] += 1;
+                degree[cipher[offset + k]] += 1;
+            }
+            int[] component = new int[n];
+            for (int c = 0; c < n; c += 1) {
+                component[c] = c;
+            }
+            for (int k = 0; k < plain.length; k += 1) {
+                int a = find(component, plain[k]),
+                    b = find(component, cipher[offset + k]);
+                component[a] = b;
+            }
+            int[] size = new int[n];
+            for (int k = 0; k < plain.length; k += 1) {
+                size[find(component, plain[k])] += 1;
+            }
+            _test = -1;
+            int root = -1;
+            for (int c = 0; c < n; c += 1) {
+                int r = find(component, c);
+                if (degree[c] > 0
+                    && (root == -1 || size[r] > size[root]
+                        || (size[r] == size[root]
+                            && degree[c] > degree[_test]))) {
+                    root = r;
+                    _test = c;
+                }
+            }
+            if (_test == -1) {
+                return;
+            }
+            _edgeStart = new int[n + 1];
+            ArrayList<Integer> steps = new ArrayList<Integer>();
+            for (int k = 0; k < plain.length; k += 1) {
+                if (find(component, plain[k]) == root) {
+                    _edgeStart[plain[k] + 1] += 1;
+                    _edgeStart[cipher[offset + k] + 1] += 1;
+                    steps.add(k);
+                }
+            }
+            for (int c = 0; c < n; c += 1) {
+                _edgeStart[c + 1] += _edgeStart[c];
+            }
+            _steps = new int[steps.size()];
+            int[] next = _edgeStart.clone();
+            _edgeStep = new int[_edgeStart[n]];
+            _edgeOther = new int[_edgeStart[n]];
+            for (int j = 0; j < _steps.length; j += 1) {
+                int k = steps.get(j);
+                _steps[j] = k;
+                int a = plain[k], b = cipher[offset + k];
+                _edgeStep[next[a]] = j;
+                _edgeOther[next[a]] = b;
+                next[a] += 1;
+                _edgeStep[next[b]] = j;
+                _edgeOther[next[b]] = a;
+                next[b] += 1;
+            }
+        }
+
+        /** Returns the representative of C's component in the union-find
+         *  forest COMPONENT. */
+        private int find(int[] component, int c) {
+            while (component[c] != c) {
+                component[c] = component[component[c]];
+                c = component[c];
+            }
+            return c;
+        }
+
+        /** Offset of the crib in the ciphertext. */
+        private final int _offset;
+
+        /** The letter whose plugboard partner is hypothesized, or -1 if
+         *  the menu is empty. */
+        private int _test;
+
+        /** The crib offsets of the edges in this menu, in increasing
+         *  order. */
+        private int[] _steps;
+
+        /** The edges at letter C are numbered _edgeStart[C] through
+         *  _edgeStart[C + 1] - 1. */
+        private int[] _edgeStart;
+
+        /** The index in _steps of the offset labeling each edge. */
+        private int[] _edgeStep;
+
+        /** The letter at the other end of each edge. */
+        private int[] _edgeOther;
+    }
+
+    /** Task searching a range of rotor orders and settings, numbered so
+     *  that setting S of order R is R * _starts + S. */
+    private class Search extends RecursiveTask<List<String>> {
+
+        /** Searches settings FROM through TO - 1 for stops of MENU. */
+        Search(Menu menu, long from, long to) {
+            _menu = menu;
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected List<String> compute() {
+            if (_to - _from > CHUNK) {
+                long mid = (_from + _to) >>> 1;
+                Search left = new Search(_menu, _from, mid);
+                left.fork();
+                List<String> right = new Search(_menu, mid, _to).compute();
+                List<String> result = left.join();
+                result.addAll(right);
+                return result;
+            }
+            List<String> result = new ArrayList<String>();
+            int n = _alphabet.size();
+            _tried = new long[(n + 63) >>> 6];
+            _partner = new int[n];
+            Arrays.fill(_partner, -1);
+            _stack = new int[n];
+            _tables = new int[_menu._steps.length][n];
+            Machine M = _config.copy();
+            int order = -1;
+            int[] setting = new int[_config.numRotors() - 1];
+            for (long s = _from; s < _to; s += 1) {
+                if (s / _starts != order) {
+                    order = (int) (s / _starts);
+                    M.insertRotors(_orders.get(order));
+                }
+                long start = s % _starts;
+                for (int i = setting.length - 1; i >= 0; i -= 1) {
+                    setting[i] = (int) (start % n);
+                    start /= n;
+                }
+                M.setRotors(setting);
+                int advanced = 0;
+                for (int j = 0; j < _menu._steps.length; j += 1) {
+                    while (advanced <= _menu._offset + _menu._steps[j]) {
+                        M.advance();
+                        advanced += 1;
+                    }
+                    fill(_tables[j], M);
+                }
+                String stop = test(order, setting);
+                if (stop != null) {
+                    result.add(stop);
+                }
+            }
+            return result;
+        }
+
+        /** Fill TABLE with the result of M's rotors and reflector, in
+         *  their current positions, on each index.  The scrambler is its
+         *  own inverse, so each result computed gives two. */
+        private void fill(int[] table, Machine M) {
+            Arrays.fill(table, -1);
+            for (int y = 0; y < table.length; y += 1) {
+                if (table[y] == -1) {
+                    table[y] = M.scramble(y);
+                    table[table[y]] = y;
+                }
+            }
+        }
+
+        /** Returns the settings for a stop at rotor order ORDER with
+         *  rotor settings SETTING, given _tables, or null if there is
+         *  none. */
+        private String test(int order, int[] setting) {
+            int n = _alphabet.size();
+            Arrays.fill(_tried, 0);
+            for (int v = 0; v < n; v += 1) {
+                if ((_tried[v >>> 6] & (1L << v)) == 0
+                    && propagate(_menu._test, v)) {
+                    return settings(order, setting);
+                }
+            }
+            return null;
+        }
+
+        /** Hypothesizes that X is plugged to Y, and propagates the
+         *  wires this implies into _partner.  Returns false as soon as a
+         *  letter would have two partners.  Every partner of the test
+         *  letter implied along the way is added to _tried. */
+        private boolean propagate(int x, int y) {
+            int n = _alphabet.size();
+            for (int i = 0; i < _plugged; i += 1) {
+                _partner[_stack[i] / n] = -1;
+            }
+            _plugged = 0;
+            if (!light(x, y)) {
+                return false;
+            }
+            for (int next = 0; next < _plugged; next += 1) {
+                x = _stack[next] / n;
+                y = _stack[next] % n;
+                if (!light(y, x)) {
+                    return false;
+                }
+                for (int e = _menu._edgeStart[x];
+                     e < _menu._edgeStart[x + 1]; e += 1) {
+                    if (!light(_menu._edgeOther[e],
+                               _tables[_menu._edgeStep[e]][y])) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Lights the wire plugging X to Y, if it is not already lit,
+         *  and returns false iff X already has another partner. */
+        private boolean light(int x, int y) {
+            if (x == _menu._test) {
+                _tried[y >>> 6] |= 1L << y;
+            }
+            if (_partner[x] == -1) {
+                _partner[x] = y;
+                _stack[_plugged] = x * _alphabet.size() + y;
+                _plugged += 1;
+                return true;
+            }
+            return _partner[x] == y;
+        }
+
+        /** Returns the settings for rotor order ORDER, rotor settings
+         *  SETTING (as indices) and the plugboard pairs in _partner. */
+        private String settings(int order, int[] setting) {
+            StringBuilder result = new StringBuilder();
+            for (String name : _orders.get(order)) {
+                result.append(name).append(' ');
+            }
+            for (int posn : setting) {
+                result.append(_alphabet.toChar(posn));
+            }
+            for (int x = 0; x < _partner.length; x += 1) {
+                if (x < _partner[x]) {
+                    result.append(" (").append(_alphabet.toChar(x))
+                        .append(_alphabet.toChar(_partner[x])).append(')');
+                }
+            }
+            return result.toString();
+        }
+
+        /** The menu tested. */
+        private final Menu _menu;
+
+        /** Range of settings searched by this task. */
+        private final long _from, _to;
+
+        /** Bitset of the partners of the test letter already tried or
+         *  eliminated. */
+        private long[] _tried;
+
+        /** The partner of each letter under the current hypothesis, or
+         *  -1 if none is implied. */
+        private int[] _partner;
+
+        /** The wires lit under the current hypothesis, in the order lit,
+         *  wire (X, Y) being recorded as X * alphabet size + Y. */
+        private int[] _stack;
+
+        /** Number of wires in _stack. */
+        private int _plugged;
+
+        /** The result, on each index, of the rotors and reflector at each
+         *  offset of _menu._steps under the current setting. */
+        private int[][] _tables;
+    }
+
+    /** Most settings searched by one task. */
+    static final int CHUNK = 1 << 12;
+
+    /** Machine supplying my alphabet, slots and rotors. */
+    private final Machine _config;
+
+    /** Pool on which searches run. */
+    private final ForkJoinPool _pool;
+
+    /** Alphabet of _config. */
+    private final Alphabet _alphabet;
+
+    /** The rotor orders tried, each naming the rotors in each slot. */
+    private final List<String[]> _orders;
+
+    /** Number of rotor settings of each rotor order. */
+    private final long _starts;
+
+    /** Number of rotor settings of all rotor orders. */
+    private final long _total;
+}
@@ -0,0 +1,109 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Bombe class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class BombeTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a 4-rotor, 3-pawl machine with reflector B and naval rotors
+     *  I, II and III available. */
+    private Machine smallMachine() {
+        Collection<Rotor> all = new ArrayList<>();
+        String[] moving = { "I", "II", "III" };
+        String[] notches = { "Q", "E", "V" };
+        for (int i = 0; i < moving.length; i += 1) {
+            all.add(new MovingRotor(moving[i],
+                                    new Permutation(NAVALA.get(moving[i]),
+                                                    UPPER),
+                                    notches[i]));
+        }
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        return new Machine(UPPER, 4, 3, all);
+    }
+
+    /** Plaintext of the test message. */
+    private static final String PLAIN =
+        "WETTERVORHERSAGEBISKAYAXNORDWESTWINDSTAERKEFUENF";
+
+    /** Plugboard used to encrypt PLAIN. */
+    private static final String PLUGS = "(AM) (ER) (KT) (SW) (GO)";
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testOrders() {
+        assertEquals(6, new Bombe(smallMachine()).numOrders());
+    }
+
+    @Test
+    public void testFindsKey() {
+        Machine M = smallMachine();
+        M.insertRotors(new String[] { "B", "II", "I", "III" });
+        M.setRotors("QDV");
+        M.setPlugboard(new Permutation(PLUGS, UPPER));
+        String cipher = M.convert(PLAIN);
+        List<String> stops =
+            new Bombe(smallMachine()).search(cipher, PLAIN.substring(0, 24),
+                                             0);
+        String found = null;
+        for (String stop : stops) {
+            if (stop.startsWith("B II I III QDV")) {
+                found = stop;
+            }
+        }
+        assertNotNull(found);
+        assertTrue(stops.size() < 20);
+        for (String pair : found.substring("B II I III QDV".length())
+                 .trim().split(" ")) {
+            assertTrue(pair, PLUGS.contains(pair)
+                       || PLUGS.contains("(" + pair.charAt(2)
+                                         + pair.charAt(1) + ")"));
+        }
+    }
+
+    @Test
+    public void testOffset() {
+        Machine M = smallMachine();
+        M.insertRotors(new String[] { "B", "III", "II", "I" });
+        M.setRotors("AZE");
+        M.setPlugboard(new Permutation(PLUGS, UPPER));
+        String cipher = M.convert(PLAIN);
+        List<String> stops =
+            new Bombe(smallMachine()).search(cipher, PLAIN.substring(10, 34),
+                                             10);
+        boolean found = false;
+        for (String stop : stops) {
+            found |= stop.startsWith("B III II I AZE");
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void testSelfEncryption() {
+        assertTrue(new Bombe(smallMachine()).search("ABCD", "XBYZ", 0)
+                   .isEmpty());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testCribTooLong() {
+        new Bombe(smallMachine()).search("ABCD", "XYZ", 2);
+    }
+
+}
@@ -0,0 +1,100 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static enigma.EnigmaException.*;
+
+/** Machines for scrambling arbitrary bytes rather than text.  Their
+ *  alphabet, ALPHABET, has 256 symbols, the code points 0 through 255,
+ *  so that symbol #k stands for the byte whose unsigned value is K.  Such
+ *  machines convert bytes through Machine.convert(byte[], ...), through
+ *  Machine.convert(ByteBuffer, ByteBuffer), or through a
+ *  MachineInputStream or MachineOutputStream.  Their rotors are random
+ *  permutations of the bytes generated from a seed, and may be saved and
+ *  loaded as compiled configurations (see ConfigFile).
+ *  @author Ishaan Mauli Mishra
+ */
+class ByteCatalog {
+
+    /** Not instantiable. */
+    private ByteCatalog() {
+    }
+
+    /** Returns a machine with ALPHABET, NUMROTORS rotor slots and PAWLS
+     *  pawls, whose available rotors are generated from SEED: a reflector
+     *  named "R", non-moving rotors named "F1", "F2", ..., one for each
+     *  slot between the reflector and the moving rotors, and MOVING moving
+     *  rotors named "M1", "M2", ..., each with one notch.  The same
+     *  arguments always give the same rotors. */
+    static Machine generate(long seed, int numRotors, int pawls,
+                            int moving) {
+        if (numRotors < 2 || pawls < 0 || pawls >= numRotors
+            || moving < pawls) {
+            throw error("bad byte catalog dimensions");
+        }
+        Random random = new Random(seed);
+        List<Rotor> rotors = new ArrayList<Rotor>();
+        rotors.add(new Reflector("R", reflection(random)));
+        for (int i = 1; i < numRotors - pawls; i += 1) {
+            rotors.add(new FixedRotor("F" + i, shuffle(random)));
+        }
+        for (int i = 1; i <= moving; i += 1) {
+            Permutation perm = shuffle(random);
+            String notch =
+                String.valueOf(ALPHABET.toChar(random.nextInt(SYMBOLS)));
+            rotors.add(new MovingRotor("M" + i, perm, notch));
+        }
+        return new Machine(ALPHABET, numRotors, pawls, rotors);
+    }
+
+    /** Returns a uniformly chosen permutation of ALPHABET, using
+     *  RANDOM. */
+    private static Permutation shuffle(Random random) {
+        int[] forward = new int[SYMBOLS];
+        for (int i = 0; i < SYMBOLS; i += 1) {
+            forward[i] = i;
+        }
+        for (int i = SYMBOLS - 1; i > 0; i -= 1) {
+            int j = random.nextInt(i + 1);
+            int t = forward[i];
+            forward[i] = forward[j];
+            forward[j] = t;
+        }
+        return new Permutation(forward, inverse(forward), ALPHABET);
+    }
+
+    /** Returns a uniformly chosen permutation of ALPHABET that swaps its
+     *  symbols in pairs, leaving none in place, using RANDOM. */
+    private static Permutation reflection(Random random) {
+        Permutation order = shuffle(random);
+        int[] forward = new int[SYMBOLS];
+        for (int i = 0; i < SYMBOLS; i += 2) {
+            int a = order.permute(i), b = order.permute(i + 1);
+            forward[a] = b;
+            forward[b] = a;
+        }
+        return new Permutation(forward, forward.clone(), ALPHABET);
+    }
+
+    /** Returns the inverse of the permutation table FORWARD. */
+    private static int[] inverse(int[] forward) {
+        int[] inverse = new int[forward.length];
+        for (int i = 0; i < forward.length; i += 1) {
+            inverse[forward[i]] = i;
+        }
+        return inverse;
+    }
+
+    /** Number of symbols in ALPHABET. */
+    static final int SYMBOLS = 256;
+
+    /** The alphabet of byte machines. */
+    static final Alphabet ALPHABET = Alphabet.ranges("\u0000-\u00ff");
+
+    /** Slots, pawls and moving rotors of the catalogs generated by
+     *  Main's --byte-catalog option. */
+    static final int DEFAULT_ROTORS = 5, DEFAULT_PAWLS = 3,
+        DEFAULT_MOVING = 8;
+}
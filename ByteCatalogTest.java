@@ -0,0 +1,148 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the ByteCatalog class and the byte
+ *  conversions of Machine.
+ *  @author Ishaan Mauli Mishra
+ */
+public class ByteCatalogTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Settings of the standard test. */
+    private static final String SETTINGS = "R F1 M3 M1 M7 ABCD (AB) (xy)";
+
+    /** Return a machine with the catalog generated from SEED, set up
+     *  with SETTINGS. */
+    private Machine byteMachine(long seed) {
+        Machine M = ByteCatalog.generate(seed, 5, 3, 8);
+        Main.setUp(M, SETTINGS);
+        return M;
+    }
+
+    /** Returns the rotor named NAME available to M. */
+    private Rotor rotor(Machine M, String name) {
+        for (Rotor r : M.availableRotors()) {
+            if (r.name().equals(name)) {
+                return r;
+            }
+        }
+        fail("no rotor " + name);
+        return null;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testGenerate() {
+        Machine M = ByteCatalog.generate(42, 5, 3, 8);
+        assertEquals(256, M.alphabet().size());
+        assertEquals(10, M.availableRotors().size());
+        Permutation reflector = rotor(M, "R").permutation();
+        assertTrue(reflector.derangement());
+        for (int c = 0; c < 256; c += 1) {
+            assertEquals(c, reflector.permute(reflector.permute(c)));
+        }
+        assertTrue(rotor(M, "M8").rotates());
+        assertFalse(rotor(M, "F1").rotates());
+    }
+
+    @Test
+    public void testSeeds() {
+        Machine a = ByteCatalog.generate(7, 5, 3, 8);
+        Machine b = ByteCatalog.generate(7, 5, 3, 8);
+        Machine c = ByteCatalog.generate(8, 5, 3, 8);
+        assertEquals(rotor(a, "M5").permutation().toString(),
+                     rotor(b, "M5").permutation().toString());
+        assertNotEquals(rotor(a, "M5").permutation().toString(),
+                        rotor(c, "M5").permutation().toString());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadDimensions() {
+        ByteCatalog.generate(1, 5, 3, 2);
+    }
+
+    @Test
+    public void testConvertBytes() {
+        byte[] data = randomBytes(1, 100000);
+        byte[] enc = new byte[data.length];
+        byteMachine(3).convert(data, 0, data.length, enc, 0);
+        Machine M = byteMachine(3);
+        for (int i = 0; i < data.length; i += 1) {
+            assertEquals(enc[i] & 0xFF, M.convert(data[i] & 0xFF));
+        }
+        byte[] dec = enc.clone();
+        byteMachine(3).convert(dec, 0, dec.length, dec, 0);
+        assertArrayEquals(data, dec);
+    }
+
+    @Test
+    public void testConvertByteBuffers() {
+        byte[] data = randomBytes(2, 5000);
+        byte[] expected = new byte[data.length];
+        byteMachine(4).convert(data, 0, data.length, expected, 0);
+        Machine M = byteMachine(4);
+        ByteBuffer in = ByteBuffer.allocateDirect(data.length);
+        in.put(data).flip();
+        ByteBuffer out = ByteBuffer.allocate(3000);
+        M.convert(in, out);
+        assertEquals(3000, in.position());
+        assertFalse(out.hasRemaining());
+        ByteBuffer rest = ByteBuffer.allocateDirect(3000);
+        M.convert(in, rest);
+        assertFalse(in.hasRemaining());
+        assertEquals(2000, rest.position());
+        byte[] result = new byte[data.length];
+        out.flip();
+        out.get(result, 0, 3000);
+        rest.flip();
+        rest.get(result, 3000, 2000);
+        assertArrayEquals(expected, result);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testTextMachineBytes() {
+        Machine M = new Machine(TestUtils.UPPER, 2, 1, Arrays.asList(
+            new Reflector("B", new Permutation(TestUtils.NAVALA.get("B"),
+                                               TestUtils.UPPER)),
+            new MovingRotor("I", new Permutation(TestUtils.NAVALA.get("I"),
+                                                 TestUtils.UPPER), "Q")));
+        M.insertRotors(new String[] { "B", "I" });
+        M.convert(new byte[1], 0, 1, new byte[1], 0);
+    }
+
+    @Test
+    public void testCompiled() throws IOException {
+        File file = File.createTempFile("bytes", ".enig");
+        try {
+            ConfigFile.write(ByteCatalog.generate(5, 5, 3, 8),
+                             file.getPath());
+            Machine loaded = ConfigFile.read(file.getPath());
+            Main.setUp(loaded, SETTINGS);
+            byte[] data = randomBytes(3, 10000);
+            byte[] a = new byte[data.length], b = new byte[data.length];
+            byteMachine(5).convert(data, 0, data.length, a, 0);
+            loaded.convert(data, 0, data.length, b, 0);
+            assertArrayEquals(a, b);
+        } finally {
+            file.delete();
+        }
+    }
+
+}
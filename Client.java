@@ -0,0 +1,114 @@
+package enigma;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** A command that has a daemon started with Main's --daemon option
+ *  convert its input, printing the results as Main would.
+ *  @author Ishaan Mauli Mishra
+ */
+public final class Client {
+
+    /** Send the input named by ARGS to a daemon, where ARGS is
+     *  [--config=NAME] ADDRESS [INPUT [OUTPUT]].  ADDRESS is the daemon's
+     *  address, as given to --daemon.  NAME is that of the configuration
+     *  file to use, as given to the daemon; by default, its first one.
+     *  INPUT and OUTPUT name the input and output files, as for Main; by
+     *  default, the standard input and output are used.  Exits with code
+     *  1 after printing the message of any error, as Main does. */
+    public static void main(String... args) {
+        try {
+            String config = "";
+            if (args.length > 0 && args[0].startsWith("--config=")) {
+                config = args[0].substring("--config=".length());
+                args = Arrays.copyOfRange(args, 1, args.length);
+            }
+            if (args.length < 1 || args.length > 3) {
+                throw error("Only 1, 2, or 3 command-line arguments "
+                            + "allowed");
+            }
+            String input = read(args.length > 1 ? args[1] : null);
+            String response = request(Daemon.address(args[0]), config,
+                                      input);
+            int newline = response.indexOf('\n');
+            String status = response.substring(0, newline);
+            write(args.length > 2 ? args[2] : null,
+                  response.substring(newline + 1));
+            if (status.startsWith("ERROR: ")) {
+                throw error("%s", status.substring("ERROR: ".length()));
+            }
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Returns the response of the daemon at ADDRESS to a request to
+     *  convert INPUT with its configuration named CONFIG. */
+    static String request(SocketAddress address, String config,
+                          String input) {
+        try (SocketChannel channel = SocketChannel.open(
+                 address instanceof UnixDomainSocketAddress
+                 ? StandardProtocolFamily.UNIX
+                 : StandardProtocolFamily.INET)) {
+            channel.connect(address);
+            Daemon.writeFrame(channel, config + "\n" + input);
+            String response = Daemon.readFrame(channel);
+            if (response == null || response.indexOf('\n') == -1) {
+                throw error("no response from daemon");
+            }
+            return response;
+        } catch (IOException excp) {
+            throw error("could not reach daemon at %s", address);
+        }
+    }
+
+    /** Returns the contents of the file named NAME, or of the standard
+     *  input if NAME is null. */
+    private static String read(String name) {
+        try {
+            if (name == null) {
+                InputStream in = System.in;
+                return new String(in.readAllBytes(), Charset.defaultCharset());
+            }
+            return new String(Files.readAllBytes(Paths.get(name)),
+                              Charset.defaultCharset());
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Write TEXT to the file named NAME, or to the standard output if
+     *  NAME is null. */
+    private static void write(String name, String text) {
+        try {
+            OutputStream out = name == null ? System.out
+                : new FileOutputStream(name);
+            Writer writer = new OutputStreamWriter(out);
+            writer.write(text);
+            if (name == null) {
+                writer.flush();
+            } else {
+                writer.close();
+            }
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import static enigma.EnigmaException.*;
+
+/** Reading and writing machine configurations in a compiled binary form,
+ *  which loads without parsing or rebuilding permutations from cycles.
+ *  A compiled configuration consists of
+ *  <pre>
+ *    magic     4 bytes, "ENIG"
+ *    version   int
+ *    length    int, the number of bytes in the body
+ *    checksum  int, the CRC-32 of the body
+ *    body
+ *  </pre>
+ *  and the body of
+ *  <pre>
+ *    alphabet size N, followed by N code points (ints)
+ *    width W of each index below: 1, 2 or 4 bytes
+ *    number of rotor slots, number of pawls, number of rotors (ints)
+ *    for each rotor:
+ *      kind: 'R' (reflector), 'N' (non-moving) or 'M' (moving)
+ *      name: its length (a short), then its chars
+ *      number of notches (an int), then their positions (indices)
+ *      the permutation's forward table, then its inverse (N indices each)
+ *  </pre>
+ *  Multibyte values are big-endian.
+ *  @author Ishaan Mauli Mishra
+ */
+class ConfigFile {
+
+    /** Returns true iff the file named NAME is a compiled
+     *  configuration. */
+    static boolean isCompiled(String name) {
+        try (FileChannel in = FileChannel.open(Path.of(name),
+                                               StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            while (head.hasRemaining() && in.read(head) > 0) {
+                continue;
+            }
+            return !head.hasRemaining() && head.getInt(0) == MAGIC;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Write the alphabet, slots and rotors of CONFIG to the file named
+     *  NAME in compiled form. */
+    static void write(Machine config, String name) {
+        Alphabet alpha = config.alphabet();
+        int n = alpha.size();
+        TreeMap<String, Rotor> rotors = new TreeMap<String, Rotor>();
+        for (Rotor r : config.availableRotors()) {
+            rotors.put(r.name(), r);
+        }
+        int width = n <= 0x100 ? 1 : n <= 0x10000 ? 2 : 4;
+        long size = 4L * (n + 5);
+        for (Rotor r : rotors.values()) {
+            int notches = r instanceof MovingRotor
+                ? ((MovingRotor) r).notches().length : 0;
+            if (r.name().length() > Short.MAX_VALUE) {
+                throw error("rotor name too long to compile");
+            }
+            size += 7 + 2L * r.name().length()
+                + (long) width * (notches + 2 * n);
+        }
+        if (size > Integer.MAX_VALUE - HEADER) {
+            throw error("configuration too large to compile");
+        }
+        ByteBuffer body = ByteBuffer.allocate((int) size);
+        body.putInt(n);
+        for (int i = 0; i < n; i += 1) {
+            body.putInt(alpha.codePoint(i));
+        }
+        body.putInt(width);
+        body.putInt(config.numRotors());
+        body.putInt(config.numPawls());
+        body.putInt(rotors.size());
+        for (Rotor r : rotors.values()) {
+            body.put((byte) (r.reflecting() ? 'R' : r.rotates() ? 'M' : 'N'));
+            body.putShort((short) r.name().length());
+            for (int i = 0; i < r.name().length(); i += 1) {
+                body.putChar(r.name().charAt(i));
+            }
+            int[] notches = r instanceof MovingRotor
+                ? ((MovingRotor) r).notches() : new int[0];
+            body.putInt(notches.length);
+            for (int notch : notches) {
+                putIndex(body, width, notch);
+            }
+            Permutation perm = r.permutation();
+            for (int i = 0; i < n; i += 1) {
+                putIndex(body, width, perm.permute(i));
+            }
+            for (int i = 0; i < n; i += 1) {
+                putIndex(body, width, perm.invert(i));
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(VERSION).putInt(body.capacity())
+            .putInt((int) crc.getValue());
+        header.flip();
+        body.flip();
+        try (FileChannel out = FileChannel.open(
+                 Path.of(name), StandardOpenOption.WRITE,
+                 StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining() || body.hasRemaining()) {
+                out.write(new ByteBuffer[] { header, body });
+            }
+        } catch (IOException excp) {
+            throw error("could not write %s", name);
+        }
+    }
+
+    /** Return a machine configured from the compiled configuration in the
+     *  file named NAME, which is mapped into memory. */
+    static Machine read(String name) {
+        MappedByteBuffer data;
+        try (FileChannel in = FileChannel.open(Path.of(name),
+                                               StandardOpenOption.READ)) {
+            data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+        try {
+            if (data.getInt() != MAGIC) {
+                throw error("%s is not a compiled configuration", name);
+            }
+            int version = data.getInt();
+            if (version != VERSION) {
+                throw error("compiled configuration version %d not "
+                            + "supported", version);
+            }
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length != data.remaining()) {
+                throw error("compiled configuration truncated");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data.slice());
+            if ((int) crc.getValue() != checksum) {
+                throw error("compiled configuration is corrupt");
+            }
+            return readBody(data);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                 | IllegalArgumentException | NegativeArraySizeException excp) {
+            throw error("compiled configuration is corrupt");
+        }
+    }
+
+    /** Return the machine described by the body of a compiled
+     *  configuration, which is at the position of DATA. */
+    private static Machine readBody(ByteBuffer data) {
+        int n = data.getInt();
+        int[] codePoints = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            codePoints[i] = data.getInt();
+        }
+        Alphabet alpha = new Alphabet(new String(codePoints, 0, n));
+        int width = data.getInt();
+        if (width != 1 && width != 2 && width != 4) {
+            throw error("compiled configuration is corrupt");
+        }
+        int numRotors = data.getInt();
+        int pawls = data.getInt();
+        int count = data.getInt();
+        List<Rotor> rotors = new ArrayList<Rotor>(count);
+        for (int k = 0; k < count; k += 1) {
+            char kind = (char) data.get();
+            char[] rotorName = new char[data.getShort()];
+            for (int i = 0; i < rotorName.length; i += 1) {
+                rotorName[i] = data.getChar();
+            }
+            StringBuilder notches = new StringBuilder();
+            for (int i = data.getInt(); i > 0; i -= 1) {
+                notches.appendCodePoint(
+                    alpha.codePoint(getIndex(data, width)));
+            }
+            int[] forward = new int[n], inverse = new int[n];
+            for (int i = 0; i < n; i += 1) {
+                forward[i] = getIndex(data, width);
+            }
+            for (int i = 0; i < n; i += 1) {
+                inverse[i] = getIndex(data, width);
+            }
+            Permutation perm = new Permutation(forward, inverse, alpha);
+            String name = new String(rotorName);
+            if (kind == 'M') {
+                rotors.add(new MovingRotor(name, perm, notches.toString()));
+            } else if (kind == 'N') {
+                rotors.add(new FixedRotor(name, perm));
+            } else if (kind == 'R') {
+                rotors.add(new Reflector(name, perm));
+            } else {
+                throw error("bad rotor description");
+            }
+        }
+        return new Machine(alpha, numRotors, pawls, rotors);
+    }
+
+    /** Append index I to BUF as a WIDTH-byte number. */
+    private static void putIndex(ByteBuffer buf, int width, int i) {
+        if (width == 1) {
+            buf.put((byte) i);
+        } else if (width == 2) {
+            buf.putShort((short) i);
+        } else {
+            buf.putInt(i);
+        }
+    }
+
+    /** Return the next WIDTH-byte index in BUF. */
+    private static int getIndex(ByteBuffer buf, int width) {
+        if (width == 1) {
+            return buf.get() & 0xFF;
+        } else if (width == 2) {
+            return buf.getChar();
+        } else {
+            return buf.getInt();
+        }
+    }
+
+    /** First four bytes of a compiled configuration: "ENIG". */
+    static final int MAGIC = 0x454E4947;
+
+    /** Version of the format written. */
+    static final int VERSION = 1;
+
+    /** Number of bytes before the body. */
+    private static final int HEADER = 16;
+}
@@ -0,0 +1,106 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the ConfigFile class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class ConfigFileTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a machine with all the naval rotors. */
+    private Machine navalConfig() {
+        return navalMachine("I", "II", "III", "IV", "V", "VI", "VII",
+                            "VIII");
+    }
+
+    /** Set M to "B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)". */
+    private void setUp(Machine M) {
+        M.insertRotors(new String[] { "B", "Beta", "III", "IV", "I" });
+        M.setRotors("AXLE");
+        M.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", UPPER));
+    }
+
+    /** Return a temporary file that is deleted on exit. */
+    private File tempFile() throws IOException {
+        File f = File.createTempFile("enigma", ".bin");
+        f.deleteOnExit();
+        return f;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File f = tempFile();
+        ConfigFile.write(navalConfig(), f.getPath());
+        assertTrue(ConfigFile.isCompiled(f.getPath()));
+        Machine M = ConfigFile.read(f.getPath());
+        assertEquals(5, M.numRotors());
+        assertEquals(3, M.numPawls());
+        assertEquals(12, M.availableRotors().size());
+        setUp(M);
+        Machine expected = navalConfig();
+        setUp(expected);
+        String msg = "FROMHISSHOULDERHIAWATHATOOKTHECAMERAOFROSEWOOD";
+        assertEquals(expected.convert(msg), M.convert(msg));
+    }
+
+    @Test
+    public void testLargeAlphabet() throws IOException {
+        Alphabet alpha = Alphabet.ranges("\u0100-\u03FF");
+        Collection<Rotor> all = new ArrayList<>();
+        all.add(new Reflector("R", new Permutation("(\u0100\u0101)",
+                                                   alpha)));
+        all.add(new MovingRotor("M", new Permutation("(\u0130\u03FF)",
+                                                     alpha),
+                                "\u0105"));
+        File f = tempFile();
+        ConfigFile.write(new Machine(alpha, 2, 1, all), f.getPath());
+        Machine M = ConfigFile.read(f.getPath());
+        assertEquals(0x300, M.alphabet().size());
+        for (Rotor r : M.availableRotors()) {
+            if (r.name().equals("M")) {
+                assertEquals("(\u0130\u03FF)",
+                             r.permutation().toString());
+                assertArrayEquals(new int[] { 5 },
+                                  ((MovingRotor) r).notches());
+            }
+        }
+    }
+
+    @Test
+    public void testNotCompiled() {
+        assertFalse(ConfigFile.isCompiled("no such file"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testCorrupt() throws IOException {
+        File f = tempFile();
+        ConfigFile.write(navalConfig(), f.getPath());
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(100);
+            int b = raf.read();
+            raf.seek(100);
+            raf.write(b ^ 1);
+        }
+        ConfigFile.read(f.getPath());
+    }
+
+}
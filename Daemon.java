@@ -0,0 +1,295 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static enigma.EnigmaException.*;
+
+/** A server that keeps machine configurations loaded and converts the
+ *  messages sent to it over a Unix domain socket or a TCP connection to
+ *  the loopback interface, so that small jobs need not pay for starting
+ *  and warming up a JVM.  Requests and responses are frames: a 4-byte
+ *  big-endian length N followed by N bytes of UTF-8 text.  The text of a
+ *  request is the name of a configuration (empty for the first one
+ *  loaded), a newline, and input as for Main: settings lines, each
+ *  followed by the message lines converted under it.  The text of the
+ *  response is a status line, "OK" or "ERROR: " and a message, followed
+ *  by the output that Main would print for the input, up to the point of
+ *  any error.  A connection may carry any number of requests, which are
+ *  answered in order.  Each connection has its own machines.
+ *  @author Ishaan Mauli Mishra
+ */
+class Daemon {
+
+    /** A daemon serving the machines in CONFIGS, by name.  The first
+     *  configuration is also used for requests that name none. */
+    Daemon(Map<String, Machine> configs) {
+        if (configs.isEmpty()) {
+            throw error("no configurations to serve");
+        }
+        _configs = new LinkedHashMap<String, Machine>(configs);
+    }
+
+    /** Convert CHARS characters with each of my configurations, in
+     *  short messages under its rotor orders in turn, so that the code
+     *  that answers requests is compiled before the first one
+     *  arrives. */
+    void warmUp(long chars) {
+        for (Machine config : _configs.values()) {
+            Alphabet alpha = config.alphabet();
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < WARM_UP_MESSAGE; i += 1) {
+                text.appendCodePoint(alpha.codePoint(i % alpha.size()));
+            }
+            String msg = text.toString();
+            Machine M = config.copy();
+            List<String[]> orders = M.rotorOrders();
+            for (long n = 0; n < chars && !orders.isEmpty();
+                 n += WARM_UP_MESSAGE) {
+                String[] order = orders.get((int) (n / WARM_UP_MESSAGE
+                                                   % orders.size()));
+                M.insertRotors(order);
+                M.setRotors(new int[order.length - 1]);
+                M.convert(msg);
+            }
+        }
+    }
+
+    /** Returns the address named by NAME: a TCP port on the loopback
+     *  interface if NAME is a port number or has the form HOST:PORT,
+     *  where HOST is "localhost" or a loopback address, and otherwise the
+     *  Unix domain socket whose path is NAME. */
+    static SocketAddress address(String name) {
+        int colon = name.lastIndexOf(':');
+        String port = colon == -1 ? name : name.substring(colon + 1);
+        boolean numeric = !port.isEmpty();
+        for (int i = 0; i < port.length(); i += 1) {
+            numeric &= port.charAt(i) >= '0' && port.charAt(i) <= '9';
+        }
+        if (!numeric) {
+            return UnixDomainSocketAddress.of(name);
+        }
+        try {
+            InetAddress host = colon <= 0
+                ? InetAddress.getLoopbackAddress()
+                : InetAddress.getByName(name.substring(0, colon));
+            if (!host.isLoopbackAddress()) {
+                throw error("%s is not a loopback address", name);
+            }
+            return new InetSocketAddress(host, Integer.parseInt(port));
+        } catch (IOException | IllegalArgumentException excp) {
+            throw error("bad address %s", name);
+        }
+    }
+
+    /** Listen at ADDRESS and answer requests until the process ends. */
+    void serve(SocketAddress address) {
+        ServerSocketChannel server;
+        try {
+            if (address instanceof UnixDomainSocketAddress) {
+                server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                server.bind(address);
+                Path path = ((UnixDomainSocketAddress) address).getPath();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException excp) {
+                        return;
+                    }
+                }));
+            } else {
+                server = ServerSocketChannel.open();
+                server.bind(address);
+            }
+        } catch (IOException excp) {
+            throw error("could not listen at %s", address);
+        }
+        serve(server);
+    }
+
+    /** Answer requests on the connections accepted by SERVER until it is
+     *  closed. */
+    void serve(ServerSocketChannel server) {
+        ExecutorService connections = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "enigma-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                connections.execute(() -> answer(channel));
+            }
+        } catch (IOException excp) {
+            return;
+        } finally {
+            connections.shutdownNow();
+        }
+    }
+
+    /** Answer the requests arriving on CHANNEL until it is closed. */
+    private void answer(SocketChannel channel) {
+        HashMap<String, Machine> machines = new HashMap<String, Machine>();
+        try (channel) {
+            String request;
+            while ((request = readFrame(channel)) != null) {
+                writeFrame(channel, respond(machines, request));
+            }
+        } catch (IOException | EnigmaException excp) {
+            return;
+        }
+    }
+
+    /** Returns the response to REQUEST, using and adding to MACHINES, my
+     *  configurations by name as copied for a connection. */
+    String respond(Map<String, Machine> machines, String request) {
+        int newline = request.indexOf('\n');
+        String name = newline == -1 ? request : request.substring(0, newline);
+        String input = newline == -1 ? "" : request.substring(newline + 1);
+        StringWriter output = new StringWriter();
+        try {
+            Machine config =
+                _configs.get(name.isEmpty() ? firstName() : name);
+            if (config == null) {
+                throw error("unknown configuration %s", name);
+            }
+            Machine M = machines.computeIfAbsent(name, k -> config.copy());
+            convert(M, input,
+                    new GroupFormatter(output, Main.GROUP_SIZE, 0));
+        } catch (EnigmaException excp) {
+            return "ERROR: " + excp.getMessage() + "\n" + output;
+        }
+        return "OK\n" + output;
+    }
+
+    /** Convert INPUT, settings lines and message lines, with M, printing
+     *  the results with OUT as Main does.  As in Main, blank lines are
+     *  converted as messages if a message line follows them, and are
+     *  otherwise printed as empty lines. */
+    private static void convert(Machine M, String input, GroupFormatter out) {
+        Lexer lines = new Lexer(input);
+        boolean configured = false;
+        ArrayList<String> blankLines = new ArrayList<String>();
+        while (lines.hasNextLine()) {
+            String line = lines.nextLine();
+            int start = 0;
+            while (start < line.length()
+                   && Character.isWhitespace(line.charAt(start))) {
+                start += 1;
+            }
+            if (start == line.length()) {
+                blankLines.add(line);
+            } else if (line.charAt(start) == '*'
+                       && (start + 1 == line.length()
+                           || Character.isWhitespace(
+                                  line.charAt(start + 1)))) {
+                endBlankLines(blankLines, out);
+                Main.setUp(M, line.substring(start + 1));
+                configured = true;
+            } else if (!configured) {
+                throw error("bad input");
+            } else {
+                for (String blank : blankLines) {
+                    Main.writeMessage(out, M.alphabet(), M.convert(blank));
+                    out.endLine();
+                }
+                blankLines.clear();
+                Main.writeMessage(out, M.alphabet(), M.convert(line));
+                out.endLine();
+            }
+        }
+        if (!configured) {
+            throw error("bad input");
+        }
+        endBlankLines(blankLines, out);
+    }
+
+    /** Print each of BLANKLINES as an empty line on OUT, and clear it. */
+    private static void endBlankLines(List<String> blankLines,
+                                      GroupFormatter out) {
+        for (int i = 0; i < blankLines.size(); i += 1) {
+            out.endLine();
+        }
+        blankLines.clear();
+    }
+
+    /** Returns the name of my first configuration. */
+    private String firstName() {
+        return _configs.keySet().iterator().next();
+    }
+
+    /** Returns the text of the next frame read from CHANNEL, or null if
+     *  the channel ends before one starts. */
+    static String readFrame(ByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        if (!fill(channel, header)) {
+            if (header.position() == 0) {
+                return null;
+            }
+            throw error("truncated frame");
+        }
+        int length = header.getInt(0);
+        if (length < 0 || length > MAX_FRAME) {
+            throw error("bad frame length %d", length);
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        if (!fill(channel, body)) {
+            throw error("truncated frame");
+        }
+        return new String(body.array(), StandardCharsets.UTF_8);
+    }
+
+    /** Write TEXT to CHANNEL as a frame. */
+    static void writeFrame(ByteChannel channel, String text)
+        throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FRAME) {
+            throw error("frame too long");
+        }
+        ByteBuffer frame = ByteBuffer.allocate(4 + bytes.length);
+        frame.putInt(bytes.length).put(bytes).flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    /** Read from CHANNEL until BUF is full, returning false if the channel
+     *  ends first. */
+    private static boolean fill(ByteChannel channel, ByteBuffer buf)
+        throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Longest frame accepted, in bytes. */
+    static final int MAX_FRAME = 1 << 28;
+
+    /** Length of the messages converted by warmUp. */
+    private static final int WARM_UP_MESSAGE = 200;
+
+    /** The configurations served, by name, in the order given. */
+    private final LinkedHashMap<String, Machine> _configs;
+}
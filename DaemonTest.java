@@ -0,0 +1,183 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.io.StringWriter;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Daemon and Client classes.
+ *  @author Ishaan Mauli Mishra
+ */
+public class DaemonTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a daemon serving a machine with naval rotors I through V
+     *  as "naval". */
+    private Daemon navalDaemon() {
+        LinkedHashMap<String, Machine> configs = new LinkedHashMap<>();
+        configs.put("naval", navalMachine("I", "II", "III", "IV", "V"));
+        return new Daemon(configs);
+    }
+
+    /** Input of the standard test. */
+    private static final String INPUT =
+        "* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)\n"
+        + "FROM HIS SHOULDER HIAWATHA\n"
+        + "\n"
+        + "* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)\n"
+        + "QVPQSOKOILPUBKJZPISFXDW\n";
+
+    /** The line separator. */
+    private static final String NL = System.lineSeparator();
+
+    /** Output for INPUT. */
+    private static final String OUTPUT =
+        "QVPQS OKOIL PUBKJ ZPISF XDW" + NL + NL
+        + "FROMH ISSHO ULDER HIAWA THA" + NL;
+
+    /** Serve requests on SERVER with DAEMON in a new thread, and return
+     *  the thread. */
+    private Thread start(Daemon daemon, ServerSocketChannel server) {
+        Thread thread = new Thread(() -> daemon.serve(server));
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testRespond() {
+        Daemon daemon = navalDaemon();
+        HashMap<String, Machine> machines = new HashMap<>();
+        assertEquals("OK\n" + OUTPUT,
+                     daemon.respond(machines, "naval\n" + INPUT));
+        assertEquals("OK\n" + OUTPUT, daemon.respond(machines, "\n" + INPUT));
+    }
+
+    @Test
+    public void testErrors() {
+        Daemon daemon = navalDaemon();
+        HashMap<String, Machine> machines = new HashMap<>();
+        assertEquals("ERROR: unknown configuration army\n",
+                     daemon.respond(machines, "army\n" + INPUT));
+        assertEquals("ERROR: bad input\n",
+                     daemon.respond(machines, "naval\nHELLO\n"));
+        assertEquals("ERROR: character w at position 1 not in alphabet\n"
+                     + "QVPQS OKOIL PUBKJ ZPISF XDW" + NL,
+                     daemon.respond(machines,
+                                    "naval\n* B Beta III IV I AXLE (HQ) "
+                                    + "(EX) (IP) (TR) (BY)\n"
+                                    + "FROM HIS SHOULDER HIAWATHA\nHw\n"));
+    }
+
+    @Test
+    public void testBlankLines() {
+        Daemon daemon = navalDaemon();
+        HashMap<String, Machine> machines = new HashMap<>();
+        assertEquals("OK\n" + NL + "QVPQS OKOIL PUBKJ ZPISF XDW" + NL + NL,
+                     daemon.respond(machines,
+                                    "naval\n \t\n* B Beta III IV I AXLE "
+                                    + "(HQ) (EX) (IP) (TR) (BY)\n"
+                                    + "FROM HIS SHOULDER HIAWATHA\n\t\n"));
+    }
+
+    @Test
+    public void testSupplementary() {
+        String smile = "\uD83D\uDE00";
+        Alphabet alpha = new Alphabet("ABCDE" + smile);
+        Collection<Rotor> all = new ArrayList<>();
+        all.add(new Reflector("R", new Permutation("(AB) (CD) (E" + smile
+                                                   + ")", alpha)));
+        all.add(new MovingRotor("M1", new Permutation("(A" + smile
+                                                      + "CE) (BD)", alpha),
+                                "A"));
+        all.add(new MovingRotor("M2", new Permutation("(ABCDE" + smile
+                                                      + ")", alpha),
+                                smile));
+        Machine config = new Machine(alpha, 3, 2, all);
+        LinkedHashMap<String, Machine> configs = new LinkedHashMap<>();
+        configs.put("smile", config);
+        Daemon daemon = new Daemon(configs);
+        daemon.warmUp(1000);
+        String msg = "A" + smile + "BCE" + smile + smile + "DA";
+        Machine M = config.copy();
+        Main.setUp(M, "R M1 M2 A" + smile);
+        StringWriter expected = new StringWriter();
+        GroupFormatter out = new GroupFormatter(expected, Main.GROUP_SIZE, 0);
+        out.writeCodePoints(M.convert(msg));
+        out.endLine();
+        assertEquals("OK\n" + expected,
+                     daemon.respond(new HashMap<>(),
+                                    "smile\n* R M1 M2 A" + smile + "\n"
+                                    + msg + "\n"));
+        assertEquals(2, expected.toString().split(" ").length);
+    }
+
+    @Test
+    public void testAddress() {
+        assertEquals(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                           7000),
+                     Daemon.address("7000"));
+        assertEquals(7000, ((InetSocketAddress)
+                            Daemon.address("localhost:7000")).getPort());
+        assertEquals(UnixDomainSocketAddress.of("/tmp/enigma.sock"),
+                     Daemon.address("/tmp/enigma.sock"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testRemoteAddress() {
+        Daemon.address("192.0.2.1:7000");
+    }
+
+    @Test
+    public void testTcp() throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), 0));
+            start(navalDaemon(), server);
+            for (int i = 0; i < 3; i += 1) {
+                assertEquals("OK\n" + OUTPUT,
+                             Client.request(server.getLocalAddress(),
+                                            "naval", INPUT));
+            }
+        }
+    }
+
+    @Test
+    public void testUnixSocket() throws IOException {
+        File socket = File.createTempFile("enigma", ".sock");
+        socket.delete();
+        try (ServerSocketChannel server =
+                 ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket.toPath()));
+            start(navalDaemon(), server);
+            assertEquals("OK\n" + OUTPUT,
+                         Client.request(Daemon.address(socket.getPath()),
+                                        "", INPUT));
+        } finally {
+            socket.delete();
+        }
+    }
+
+}
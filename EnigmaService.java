@@ -0,0 +1,220 @@
+package enigma;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static enigma.EnigmaException.*;
+
+/** A thread-safe service converting messages in sessions, for programs
+ *  that embed the simulator.  A session is a machine of one
+ *  configuration set up from a settings line; each call to encrypt
+ *  continues from the rotor positions the previous one left, as do
+ *  successive message lines in Main.  Sessions are independent: each has
+ *  its own lock, and calls for different sessions never wait for one
+ *  another.  The machines of closed sessions are kept for reuse by new
+ *  ones, so that opening and closing sessions creates little garbage.
+ *  All sessions share the rotors of the configuration, which they do not
+ *  modify.
+ *  @author Ishaan Mauli Mishra
+ */
+class EnigmaService {
+
+    /** A service whose sessions use machines configured as CONFIG, with
+     *  at most MAXPOOLED machines of closed sessions kept for reuse. */
+    EnigmaService(Machine config, int maxPooled) {
+        _config = config;
+        _maxPooled = maxPooled;
+    }
+
+    /** A service whose sessions use machines configured as CONFIG. */
+    EnigmaService(Machine config) {
+        this(config, DEFAULT_MAX_POOLED);
+    }
+
+    /** Open a session whose machine is set up as specified by SETTINGS, a
+     *  settings line with or without its initial '*', and return its
+     *  id. */
+    long open(String settings) {
+        Session session = _pool.poll();
+        if (session == null) {
+            session = new Session(_config.copy());
+        } else {
+            _pooled.decrementAndGet();
+        }
+        String spec = settings.trim();
+        if (spec.startsWith("*")) {
+            spec = spec.substring(1);
+        }
+        try {
+            Main.setUp(session._machine, spec);
+        } catch (EnigmaException excp) {
+            recycle(session);
+            throw excp;
+        }
+        long id = _nextId.getAndIncrement();
+        session._id = id;
+        _sessions.put(id, session);
+        return id;
+    }
+
+    /** Returns the encoding/decoding of MSG in session ID, skipping its
+     *  blanks, and advances the session's machine accordingly.  If the
+     *  alphabet has supplementary characters, MSG is taken as a sequence
+     *  of code points.  Calls for the same session are performed one at
+     *  a time. */
+    String encrypt(long id, CharSequence msg) {
+        Session session = lock(id);
+        try {
+            Machine M = session._machine;
+            Alphabet alpha = M.alphabet();
+            int room = alpha.supplementary() ? 2 * msg.length()
+                : msg.length();
+            if (session._buffer.length < room) {
+                session._buffer =
+                    new char[Math.max(room, 2 * session._buffer.length)];
+            }
+            char[] out = session._buffer;
+            if (alpha.supplementary()) {
+                return encryptCodePoints(M, msg, out);
+            }
+            int n = 0;
+            for (int i = 0; i < msg.length(); i += 1) {
+                char c = msg.charAt(i);
+                if (c == ' ') {
+                    continue;
+                }
+                int index = alpha.toInt(c);
+                if (index == -1) {
+                    throw error("character %c at position %d not in "
+                                + "alphabet", c, i);
+                }
+                out[n] = alpha.toChar(M.convert(index));
+                n += 1;
+            }
+            return new String(out, 0, n);
+        } finally {
+            session._lock.unlock();
+        }
+    }
+
+    /** Returns the encoding/decoding by M of the code points of MSG,
+     *  skipping blanks, using OUT, which has room for two chars for each
+     *  char of MSG, to hold the result. */
+    private static String encryptCodePoints(Machine M, CharSequence msg,
+                                            char[] out) {
+        Alphabet alpha = M.alphabet();
+        int n = 0;
+        int posn = 0;
+        for (int i = 0; i < msg.length(); posn += 1) {
+            int cp = Character.codePointAt(msg, i);
+            i += Character.charCount(cp);
+            if (cp == ' ') {
+                continue;
+            }
+            int index = alpha.codePointIndex(cp);
+            if (index == -1) {
+                throw error("character %s at position %d not in alphabet",
+                            new String(Character.toChars(cp)), posn);
+            }
+            n += Character.toChars(alpha.codePoint(M.convert(index)), out,
+                                   n);
+        }
+        return new String(out, 0, n);
+    }
+
+    /** Close session ID, whose id may not be used thereafter. */
+    void close(long id) {
+        Session session = lock(id);
+        try {
+            _sessions.remove(id);
+            session._id = -1;
+        } finally {
+            session._lock.unlock();
+        }
+        recycle(session);
+    }
+
+    /** Returns the number of open sessions. */
+    int sessions() {
+        return _sessions.size();
+    }
+
+    /** Returns the number of machines kept for reuse. */
+    int pooled() {
+        return _pooled.get();
+    }
+
+    /** Returns open session ID, locked by the current thread. */
+    private Session lock(long id) {
+        Session session = _sessions.get(id);
+        if (session != null) {
+            session._lock.lock();
+            if (session._id == id) {
+                return session;
+            }
+            session._lock.unlock();
+        }
+        throw error("no session %d", id);
+    }
+
+    /** Keep SESSION, which is no longer open, for reuse if there is
+     *  room. */
+    private void recycle(Session session) {
+        if (_pooled.incrementAndGet() <= _maxPooled) {
+            _pool.add(session);
+        } else {
+            _pooled.decrementAndGet();
+        }
+    }
+
+    /** The state of a session. */
+    private static class Session {
+
+        /** A session converting with M. */
+        Session(Machine M) {
+            _machine = M;
+        }
+
+        /** The session's machine. */
+        private final Machine _machine;
+
+        /** Held while the session is used. */
+        private final ReentrantLock _lock = new ReentrantLock();
+
+        /** The session's id, or -1 when it is not open.  Guarded by
+         *  _lock. */
+        private long _id = -1;
+
+        /** Holds converted characters.  Guarded by _lock. */
+        private char[] _buffer = new char[INITIAL_BUFFER];
+    }
+
+    /** Default maximum number of machines kept for reuse. */
+    static final int DEFAULT_MAX_POOLED = 1 << 12;
+
+    /** Initial length of the buffer of a session. */
+    private static final int INITIAL_BUFFER = 64;
+
+    /** The configuration of my machines. */
+    private final Machine _config;
+
+    /** Maximum number of machines kept for reuse. */
+    private final int _maxPooled;
+
+    /** Open sessions by id. */
+    private final ConcurrentHashMap<Long, Session> _sessions =
+        new ConcurrentHashMap<Long, Session>();
+
+    /** Sessions closed, kept for reuse. */
+    private final ConcurrentLinkedQueue<Session> _pool =
+        new ConcurrentLinkedQueue<Session>();
+
+    /** Number of sessions in _pool, or about to be added to it. */
+    private final AtomicInteger _pooled = new AtomicInteger();
+
+    /** Id of the next session opened. */
+    private final AtomicLong _nextId = new AtomicLong();
+}
@@ -0,0 +1,215 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the EnigmaService class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class EnigmaServiceTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Returns MSG converted by a new machine configured as CONFIG and
+     *  set up by SETTINGS. */
+    private String expected(Machine config, String settings, String msg) {
+        Machine M = config.copy();
+        Main.setUp(M, settings);
+        return M.convert(msg);
+    }
+
+    /** Settings of the standard test. */
+    private static final String SETTINGS =
+        "B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)";
+
+    /** Message of the standard test. */
+    private static final String MSG =
+        "FROM HIS SHOULDER HIAWATHA TOOK THE CAMERA OF ROSEWOOD";
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testEncrypt() {
+        EnigmaService service =
+            new EnigmaService(navalMachine("I", "II", "III", "IV", "V"));
+        long id = service.open("* " + SETTINGS);
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW",
+                     service.encrypt(id, "FROM HIS SHOULDER HIAWATHA"));
+        assertEquals(1, service.sessions());
+        service.close(id);
+        assertEquals(0, service.sessions());
+    }
+
+    @Test
+    public void testSupplementary() {
+        String smile = "\uD83D\uDE00";
+        Alphabet alpha = new Alphabet("ABCDE" + smile);
+        Collection<Rotor> all = new ArrayList<>();
+        all.add(new Reflector("R", new Permutation("(AB) (CD) (E" + smile
+                                                   + ")", alpha)));
+        all.add(new MovingRotor("M1", new Permutation("(A" + smile
+                                                      + "CE) (BD)", alpha),
+                                "A"));
+        all.add(new MovingRotor("M2", new Permutation("(ABCDE" + smile
+                                                      + ")", alpha),
+                                smile));
+        Machine config = new Machine(alpha, 3, 2, all);
+        EnigmaService service = new EnigmaService(config);
+        String settings = "R M1 M2 A" + smile + " (B" + smile + ")";
+        String msg = "A" + smile + "B CE" + smile + smile;
+        long id = service.open(settings);
+        String result = service.encrypt(id, msg.substring(0, 3))
+            + service.encrypt(id, msg.substring(3));
+        assertEquals(expected(config, settings, msg), result);
+        assertEquals(7, result.codePointCount(0, result.length()));
+        try {
+            service.encrypt(id, "A" + smile + "x");
+            fail("converted a character not in the alphabet");
+        } catch (EnigmaException excp) {
+            assertEquals("character x at position 2 not in alphabet",
+                         excp.getMessage());
+        }
+    }
+
+    @Test
+    public void testContinues() {
+        Machine config = navalMachine("I", "II", "III", "IV", "V");
+        EnigmaService service = new EnigmaService(config);
+        long id = service.open(SETTINGS);
+        StringBuilder result = new StringBuilder();
+        for (String word : MSG.split(" ")) {
+            result.append(service.encrypt(id, word));
+        }
+        assertEquals(expected(config, SETTINGS, MSG), result.toString());
+    }
+
+    @Test
+    public void testIsolated() {
+        Machine config = navalMachine("I", "II", "III", "IV", "V");
+        EnigmaService service = new EnigmaService(config);
+        String other = "B Beta I II III QQQQ (AB)";
+        long a = service.open(SETTINGS);
+        long b = service.open(other);
+        String first = service.encrypt(a, "FROM HIS");
+        String second = service.encrypt(b, MSG);
+        first += service.encrypt(a, MSG.substring("FROM HIS".length()));
+        assertEquals(expected(config, SETTINGS, MSG), first);
+        assertEquals(expected(config, other, MSG), second);
+    }
+
+    @Test
+    public void testRecycled() {
+        Machine config = navalMachine("I", "II", "III", "IV", "V");
+        EnigmaService service = new EnigmaService(config, 2);
+        long[] ids = new long[4];
+        for (int i = 0; i < ids.length; i += 1) {
+            ids[i] = service.open(SETTINGS);
+            service.encrypt(ids[i], MSG);
+        }
+        for (long id : ids) {
+            service.close(id);
+        }
+        assertEquals(2, service.pooled());
+        long id = service.open("B Beta I II III AAAA");
+        assertEquals(1, service.pooled());
+        assertEquals(expected(config, "B Beta I II III AAAA", MSG),
+                     service.encrypt(id, MSG));
+        long fresh = service.open(SETTINGS);
+        assertEquals(0, service.pooled());
+        assertEquals(expected(config, SETTINGS, MSG),
+                     service.encrypt(fresh, MSG));
+    }
+
+    @Test
+    public void testClosed() {
+        EnigmaService service =
+            new EnigmaService(navalMachine("I", "II", "III", "IV", "V"));
+        long id = service.open(SETTINGS);
+        service.close(id);
+        try {
+            service.encrypt(id, MSG);
+            fail("encrypted in closed session");
+        } catch (EnigmaException excp) {
+            assertEquals("no session " + id, excp.getMessage());
+        }
+        long next = service.open(SETTINGS);
+        assertNotEquals(id, next);
+        try {
+            service.close(id);
+            fail("closed session twice");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testBadInput() {
+        EnigmaService service =
+            new EnigmaService(navalMachine("I", "II", "III", "IV", "V"));
+        try {
+            service.open("B Beta III IV NOSUCH AXLE");
+            fail("opened with unknown rotor");
+        } catch (EnigmaException excp) {
+            assertEquals(0, service.sessions());
+        }
+        long id = service.open(SETTINGS);
+        try {
+            service.encrypt(id, "FROM his");
+            fail("converted character not in alphabet");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        Machine config = navalMachine("I", "II", "III", "IV", "V");
+        EnigmaService service = new EnigmaService(config, 4);
+        String[] settings = {
+            SETTINGS, "B Beta I II III QQQQ (AB)", "B Beta V IV III ZZZZ",
+        };
+        String[] wanted = new String[settings.length];
+        for (int i = 0; i < settings.length; i += 1) {
+            wanted[i] = expected(config, settings[i], MSG);
+        }
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t += 1) {
+            int start = t;
+            threads[t] = new Thread(() -> {
+                for (int n = 0; n < 200; n += 1) {
+                    int k = (start + n) % settings.length;
+                    long id = service.open(settings[k]);
+                    StringBuilder result = new StringBuilder();
+                    for (String word : MSG.split(" ")) {
+                        result.append(service.encrypt(id, word));
+                    }
+                    service.close(id);
+                    if (!wanted[k].equals(result.toString())) {
+                        failure.set(settings[k]);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertEquals(0, service.sessions());
+        assertTrue(service.pooled() <= 4);
+    }
+
+}
@@ -0,0 +1,165 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import static enigma.EnigmaException.*;
+
+/** Prints message lines in groups of characters, each full group followed
+ *  by a blank (so that a line whose length is a multiple of the group size
+ *  ends in a blank).  The characters of a line are collected in a buffer
+ *  and passed to the underlying Writer in blocks, when the buffer fills
+ *  and when the line ends, rather than one character at a time.
+ *  @author Ishaan Mauli Mishra
+ */
+class GroupFormatter {
+
+    /** A formatter printing to OUT in groups of GROUPSIZE characters.  If
+     *  LINEWIDTH is positive, a message line continues on a new printed
+     *  line after each LINEWIDTH characters (and the blank ending the
+     *  group there), and it must be a multiple of GROUPSIZE; otherwise
+     *  each message line is printed on one line. */
+    GroupFormatter(Writer out, int groupSize, int lineWidth) {
+        if (groupSize < 1) {
+            throw error("group size must be positive");
+        }
+        if (lineWidth < 0 || lineWidth % groupSize != 0) {
+            throw error("line width must be a multiple of the group size");
+        }
+        _out = out;
+        _groupSize = groupSize;
+        _lineWidth = lineWidth;
+        _buffer = new char[Math.max(BUFFER_SIZE,
+                                    groupSize + 1 + NEWLINE.length)];
+    }
+
+    /** Print the LEN characters of MSG starting at OFF as the
+     *  continuation of the current message line. */
+    void write(char[] msg, int off, int len) {
+        while (len > 0) {
+            int n = room(len);
+            System.arraycopy(msg, off, _buffer, _length, n);
+            added(n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /** Print MSG as the continuation of the current message line. */
+    void write(String msg) {
+        int off = 0;
+        int len = msg.length();
+        while (len > 0) {
+            int n = room(len);
+            msg.getChars(off, off + n, _buffer, _length);
+            added(n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /** Print MSG as the continuation of the current message line,
+     *  counting each code point, even a supplementary one, as a single
+     *  character of a group. */
+    void writeCodePoints(String msg) {
+        for (int i = 0; i < msg.length(); ) {
+            int cp = msg.codePointAt(i);
+            room(1);
+            if (_buffer.length - _length < 3 + NEWLINE.length) {
+                drain();
+            }
+            int n = Character.toChars(cp, _buffer, _length);
+            _length += n - 1;
+            added(1);
+            i += n;
+        }
+    }
+
+    /** End the current message line, passing all of it that remains in
+     *  my buffer to my Writer. */
+    void endLine() {
+        newline();
+        _inGroup = 0;
+        _inLine = 0;
+        drain();
+    }
+
+    /** Returns the number of the next LEN characters of a message that
+     *  can be copied to my buffer at once: up to the end of the current
+     *  group.  Starts a new printed line first if the current one is
+     *  full, and makes room for them and for what added may append. */
+    private int room(int len) {
+        if (_lineWidth > 0 && _inLine == _lineWidth) {
+            newline();
+            _inLine = 0;
+        }
+        int n = Math.min(len, _groupSize - _inGroup);
+        if (_buffer.length - _length < n + 1 + NEWLINE.length) {
+            drain();
+        }
+        return n;
+    }
+
+    /** Account for N characters just copied to the end of my buffer,
+     *  ending the group if it is full. */
+    private void added(int n) {
+        _length += n;
+        _inGroup += n;
+        if (_inGroup == _groupSize) {
+            _buffer[_length] = ' ';
+            _length += 1;
+            _inGroup = 0;
+            if (_lineWidth > 0) {
+                _inLine += _groupSize;
+            }
+        }
+    }
+
+    /** Append a line separator to my buffer. */
+    private void newline() {
+        if (_buffer.length - _length < NEWLINE.length) {
+            drain();
+        }
+        System.arraycopy(NEWLINE, 0, _buffer, _length, NEWLINE.length);
+        _length += NEWLINE.length;
+    }
+
+    /** Pass the contents of my buffer to my Writer and empty it. */
+    private void drain() {
+        try {
+            _out.write(_buffer, 0, _length);
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+        _length = 0;
+    }
+
+    /** Size of my buffer, in chars, unless groups need more. */
+    private static final int BUFFER_SIZE = 1 << 12;
+
+    /** The line separator. */
+    private static final char[] NEWLINE =
+        System.lineSeparator().toCharArray();
+
+    /** Where I print. */
+    private final Writer _out;
+
+    /** Number of characters in each group. */
+    private final int _groupSize;
+
+    /** Number of message characters on each printed line, or 0 for no
+     *  limit. */
+    private final int _lineWidth;
+
+    /** Formatted characters not yet passed to _out. */
+    private final char[] _buffer;
+
+    /** Number of characters in _buffer. */
+    private int _length;
+
+    /** Number of characters in the current group. */
+    private int _inGroup;
+
+    /** Number of message characters on the current printed line. */
+    private int _inLine;
+}
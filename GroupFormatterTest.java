@@ -0,0 +1,95 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+/** The suite of all JUnit tests for the GroupFormatter class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class GroupFormatterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** The line separator. */
+    private static final String NL = System.lineSeparator();
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testGroups() {
+        StringWriter out = new StringWriter();
+        GroupFormatter f = new GroupFormatter(out, 5, 0);
+        f.write("QVPQSOKOILPUBKJZPISFXDW");
+        f.endLine();
+        f.write("ABCDE");
+        f.endLine();
+        f.endLine();
+        assertEquals("QVPQS OKOIL PUBKJ ZPISF XDW" + NL + "ABCDE " + NL
+                     + NL, out.toString());
+    }
+
+    @Test
+    public void testPieces() {
+        StringWriter out = new StringWriter();
+        GroupFormatter f = new GroupFormatter(out, 5, 0);
+        char[] msg = "QVPQSOKOILPUBKJZPISFXDW".toCharArray();
+        f.write(msg, 0, 3);
+        f.write(msg, 3, 9);
+        f.write(msg, 12, 11);
+        f.endLine();
+        assertEquals("QVPQS OKOIL PUBKJ ZPISF XDW" + NL, out.toString());
+    }
+
+    @Test
+    public void testLongLine() {
+        StringWriter out = new StringWriter();
+        GroupFormatter f = new GroupFormatter(out, 4, 0);
+        StringBuilder msg = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10003; i += 1) {
+            char c = (char) ('A' + i % 26);
+            msg.append(c);
+            expected.append(c);
+            if (i % 4 == 3) {
+                expected.append(' ');
+            }
+        }
+        f.write(msg.toString());
+        f.endLine();
+        assertEquals(expected + NL, out.toString());
+    }
+
+    @Test
+    public void testLineWidth() {
+        StringWriter out = new StringWriter();
+        GroupFormatter f = new GroupFormatter(out, 2, 4);
+        f.write("ABCDEFGHI");
+        f.endLine();
+        f.write("ABCD");
+        f.endLine();
+        assertEquals("AB CD " + NL + "EF GH " + NL + "I" + NL
+                     + "AB CD " + NL, out.toString());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadLineWidth() {
+        new GroupFormatter(new StringWriter(), 5, 12);
+    }
+
+    @Test
+    public void testCodePoints() {
+        String smile = "\uD83D\uDE00";
+        StringWriter out = new StringWriter();
+        GroupFormatter f = new GroupFormatter(out, 3, 0);
+        f.writeCodePoints("A" + smile + "B" + smile + smile);
+        f.endLine();
+        assertEquals("A" + smile + "B " + smile + smile + NL,
+                     out.toString());
+    }
+}
@@ -0,0 +1,540 @@
+package enigma;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static enigma.EnigmaException.*;
+
+/** A ciphertext-only attack.  It first tries every rotor order and
+ *  every setting of the rotors, with rings at their default settings and
+ *  no plugboard, judging each decryption by its index of coincidence,
+ *  which a plugboard alters relatively little, and keeps the best few
+ *  as candidates.  Then, in independent restarts on a work-stealing
+ *  pool, it climbs from a candidate: first adjusting the ring settings
+ *  of the moving rotors together with their settings, again by index of
+ *  coincidence, and then adding, removing and exchanging plugboard pairs,
+ *  judging decryptions by their n-gram statistics.  Restarts after the
+ *  first for each candidate begin with random plugboards.  The search
+ *  stops when a time limit expires, and the best key found so far is
+ *  available at any time.
+ *
+ *  Decryption in the inner loops allocates nothing: the ciphertext and
+ *  plaintext are arrays of indices, rotor and ring settings are set from
+ *  arrays of indices, and while the plugboard is being climbed, each
+ *  character is decrypted by table lookup.
+ *  @author Ishaan Mauli Mishra
+ */
+class HillClimber {
+
+    /** A climber trying the rotors available to CONFIG, in the slots
+     *  CONFIG has, judging plugboards by NGRAMS (or by index of
+     *  coincidence if NGRAMS is null), and running on POOL. */
+    HillClimber(Machine config, Ngrams ngrams, ForkJoinPool pool) {
+        _config = config;
+        _ngrams = ngrams;
+        _pool = pool;
+        _alphabet = config.alphabet();
+        _orders = config.rotorOrders();
+        if (_orders.isEmpty()) {
+            throw error("no rotor orders to try");
+        }
+        long starts = 1;
+        try {
+            for (int i = 1; i < config.numRotors(); i += 1) {
+                starts = Math.multiplyExact(starts, _alphabet.size());
+            }
+            _total = Math.multiplyExact(starts, _orders.size());
+        } catch (ArithmeticException excp) {
+            throw error("too many rotor settings to search");
+        }
+        _starts = starts;
+    }
+
+    /** A climber trying the rotors available to CONFIG, judging
+     *  plugboards by NGRAMS, and running on the common pool. */
+    HillClimber(Machine config, Ngrams ngrams) {
+        this(config, ngrams, ForkJoinPool.commonPool());
+    }
+
+    /** Report each improvement on the best key to PROGRESS, or nothing
+     *  if PROGRESS is null. */
+    void setProgress(PrintStream progress) {
+        _progress = progress;
+    }
+
+    /** Searches for the key of CIPHERTEXT for about MILLIS milliseconds,
+     *  or until MAXRESTARTS restarts have run, whichever comes first,
+     *  choosing starting plugboards with random numbers seeded by SEED.
+     *  At least one chunk of rotor settings is scanned and at least one
+     *  restart runs, however briefly.  Blanks in CIPHERTEXT are ignored.
+     *  Returns the best settings found, as for best(). */
+    String search(String ciphertext, long millis, long maxRestarts,
+                  long seed) {
+        int[] cipher = new int[ciphertext.length()];
+        int len = 0;
+        for (int i = 0; i < ciphertext.length(); i += 1) {
+            char c = ciphertext.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            cipher[len] = _alphabet.toInt(c);
+            if (cipher[len] == -1) {
+                throw error("character %c at position %d not in alphabet",
+                            c, i);
+            }
+            len += 1;
+        }
+        if (len < 2) {
+            throw error("ciphertext too short");
+        }
+        _cipher = Arrays.copyOf(cipher, len);
+        _start = System.nanoTime();
+        _deadline = _start + millis * 1_000_000;
+        _maxRestarts = Math.max(maxRestarts, 1);
+        _restarts.set(0);
+        synchronized (this) {
+            _best = null;
+        }
+        _candidates = _pool.invoke(new Scan(0, _total)).keys();
+        if (_progress != null) {
+            _progress.printf("%.1fs: scanned rotor settings%n",
+                             (System.nanoTime() - _start) / 1e9);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        while ((_restarts.get() == 0 || !timeUp())
+               && _restarts.get() < _maxRestarts && _candidates.length > 0) {
+            ArrayList<Callable<Object>> batch =
+                new ArrayList<Callable<Object>>();
+            for (int i = 0; i < _pool.getParallelism(); i += 1) {
+                batch.add(Executors.callable(new Restart(random.split())));
+            }
+            _pool.invokeAll(batch);
+        }
+        if (best() == null) {
+            throw error("no candidate settings found");
+        }
+        return best();
+    }
+
+    /** Returns the best settings found so far, in the form accepted after
+     *  the '*' of a settings line: rotor names, rotor settings, ring
+     *  settings, and plugboard pairs.  Returns null if no restart has yet
+     *  completed. */
+    synchronized String best() {
+        return _best;
+    }
+
+    /** Returns the score of best(): the mean log probability of the
+     *  n-grams of its decryption, or its index of coincidence if I have
+     *  no n-gram statistics. */
+    synchronized double bestScore() {
+        return _bestScore;
+    }
+
+    /** Returns the number of restarts begun by the last search. */
+    long restarts() {
+        return Math.min(_restarts.get(), _maxRestarts);
+    }
+
+    /** Returns true iff the time allowed the current search has
+     *  expired. */
+    private boolean timeUp() {
+        return System.nanoTime() >= _deadline;
+    }
+
+    /** Record the key with rotor order ORDER, settings SETTINGS, ring
+     *  settings RINGS and plugboard PLUG as the best so far if its score,
+     *  SCORE, is higher than that of any key yet found. */
+    private synchronized void offer(String[] order, int[] settings,
+                                    int[] rings, int[] plug, double score) {
+        if (_best != null && score <= _bestScore) {
+            return;
+        }
+        StringBuilder result = new StringBuilder(String.join(" ", order));
+        result.append(' ');
+        for (int s : settings) {
+            result.append(_alphabet.toChar(s));
+        }
+        result.append(' ');
+        for (int r : rings) {
+            result.append(_alphabet.toChar(r));
+        }
+        for (int c = 0; c < plug.length; c += 1) {
+            if (c < plug[c]) {
+                result.append(" (").append(_alphabet.toChar(c))
+                    .append(_alphabet.toChar(plug[c])).append(')');
+            }
+        }
+        _best = result.toString();
+        _bestScore = score;
+        if (_progress != null) {
+            _progress.printf("%.1fs, restart %d: %.4f %s%n",
+                             (System.nanoTime() - _start) / 1e9,
+                             _restarts.get(), score, _best);
+        }
+    }
+
+    /** The best keys, with their scores, of those offered. */
+    private static class Candidates {
+
+        /** A collection keeping the best SIZE keys offered. */
+        Candidates(int size) {
+            _keys = new long[size];
+            _scores = new double[size];
+        }
+
+        /** Keep KEY, whose score is SCORE, if it is among the best
+         *  offered. */
+        void offer(long key, double score) {
+            if (_count < _keys.length) {
+                _keys[_count] = key;
+                _scores[_count] = score;
+                _count += 1;
+                return;
+            }
+            int worst = 0;
+            for (int i = 1; i < _count; i += 1) {
+                if (_scores[i] < _scores[worst]) {
+                    worst = i;
+                }
+            }
+            if (score > _scores[worst]) {
+                _keys[worst] = key;
+                _scores[worst] = score;
+            }
+        }
+
+        /** Offer all the keys kept by OTHER. */
+        void offerAll(Candidates other) {
+            for (int i = 0; i < other._count; i += 1) {
+                offer(other._keys[i], other._scores[i]);
+            }
+        }
+
+        /** Returns the keys kept, best first. */
+        long[] keys() {
+            Integer[] order = new Integer[_count];
+            for (int i = 0; i < _count; i += 1) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(_scores[b],
+                                                        _scores[a]));
+            long[] result = new long[_count];
+            for (int i = 0; i < _count; i += 1) {
+                result[i] = _keys[order[i]];
+            }
+            return result;
+        }
+
+        /** The keys kept are _keys[0 .. _count-1]. */
+        private final long[] _keys;
+
+        /** The score of each key kept. */
+        private final double[] _scores;
+
+        /** Number of keys kept. */
+        private int _count;
+    }
+
+    /** Decrypts the ciphertext with keys held in arrays of indices. */
+    private abstract class Decryptor {
+
+        /** A decryptor with its own machine. */
+        Decryptor() {
+            int n = _alphabet.size();
+            _machine = _config.copy();
+            _settings = new int[_config.numRotors() - 1];
+            _rings = new int[_settings.length];
+            _plug = new int[n];
+            for (int c = 0; c < n; c += 1) {
+                _plug[c] = c;
+            }
+            _plain = new int[_cipher.length];
+            _counts = new int[n];
+        }
+
+        /** Put the rotors of rotor order ORDER in my machine and set
+         *  _settings to setting number START of that order, numbering
+         *  them as base-(alphabet size) numerals. */
+        void setKey(int order, long start) {
+            int n = _alphabet.size();
+            _order = _orders.get(order);
+            _machine.insertRotors(_order);
+            for (int i = _settings.length - 1; i >= 0; i -= 1) {
+                _settings[i] = (int) (start % n);
+                start /= n;
+            }
+        }
+
+        /** Returns the index of coincidence of the decryption of _cipher
+         *  with my current key. */
+        double settingsScore() {
+            _machine.setRotors(_settings);
+            _machine.setRings(_rings);
+            int[] cipher = _cipher, plug = _plug;
+            for (int i = 0; i < cipher.length; i += 1) {
+                _machine.advance();
+                _plain[i] = plug[_machine.scramble(plug[cipher[i]])];
+            }
+            return Ngrams.indexOfCoincidence(_plain, cipher.length,
+                                             _alphabet.size(), _counts);
+        }
+
+        /** Machine used to decrypt. */
+        protected final Machine _machine;
+
+        /** Current rotor order. */
+        protected String[] _order;
+
+        /** Current rotor settings of slots 1 and up. */
+        protected final int[] _settings;
+
+        /** Current ring settings of slots 1 and up. */
+        protected final int[] _rings;
+
+        /** Current plugboard, as the partner of each index. */
+        protected final int[] _plug;
+
+        /** Decryption of _cipher with the current key. */
+        protected final int[] _plain;
+
+        /** Work space for computing indices of coincidence. */
+        protected final int[] _counts;
+    }
+
+    /** Task trying a range of rotor orders and settings, numbered so that
+     *  setting S of order R is R * _starts + S, and returning the best
+     *  CANDIDATES of them by index of coincidence. */
+    private class Scan extends RecursiveTask<Candidates> {
+
+        /** Tries settings FROM through TO - 1, or none if FROM is not 0
+         *  and the search's time is up. */
+        Scan(long from, long to) {
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected Candidates compute() {
+            if (_to - _from > CHUNK) {
+                long mid = (_from + _to) >>> 1;
+                Scan left = new Scan(_from, mid);
+                left.fork();
+                Candidates result = new Scan(mid, _to).compute();
+                result.offerAll(left.join());
+                return result;
+            }
+            Candidates result = new Candidates(CANDIDATES);
+            if (_from > 0 && timeUp()) {
+                return result;
+            }
+            Decryptor work = new Decryptor() { };
+            for (long s = _from; s < _to; s += 1) {
+                work.setKey((int) (s / _starts), s % _starts);
+                result.offer(s, work.settingsScore());
+            }
+            return result;
+        }
+
+        /** Range of settings tried by this task. */
+        private final long _from, _to;
+    }
+
+    /** One climb from a candidate. */
+    private class Restart extends Decryptor implements Runnable {
+
+        /** A climb whose starting key is chosen using RANDOM. */
+        Restart(SplittableRandom random) {
+            _random = random;
+        }
+
+        /** Climb from candidate number _restarts, unless the search is
+         *  over. */
+        @Override
+        public void run() {
+            long restart = _restarts.getAndIncrement();
+            if ((restart > 0 && timeUp()) || restart >= _maxRestarts) {
+                return;
+            }
+            int n = _alphabet.size();
+            long key = _candidates[(int) (restart % _candidates.length)];
+            setKey((int) (key / _starts), key % _starts);
+            if (restart >= _candidates.length) {
+                for (int k = _random.nextInt(n / 2 + 1); k > 0; k -= 1) {
+                    int a = _random.nextInt(n), b = _random.nextInt(n);
+                    if (_plug[a] == a && _plug[b] == b) {
+                        _plug[a] = b;
+                        _plug[b] = a;
+                    }
+                }
+            }
+            climbRings();
+            _tables = new int[_cipher.length * n];
+            tabulate();
+            climbPlugboard();
+            offer(_order, _settings, _rings, _plug, plugboardScore());
+        }
+
+        /** Improve the ring settings of the moving rotors by index of
+         *  coincidence, changing each rotor's setting along with its ring
+         *  so that only the points at which it carries the rotor to its
+         *  left change, until no change improves them. */
+        private void climbRings() {
+            int n = _alphabet.size();
+            int first = _config.numRotors() - _config.numPawls() - 1;
+            double best = settingsScore();
+            boolean improved = true;
+            while (improved && !timeUp()) {
+                improved = false;
+                for (int i = Math.max(first, 0); i < _rings.length; i += 1) {
+                    for (int r = 0; r < n; r += 1) {
+                        int keepRing = _rings[i], keepSetting = _settings[i];
+                        if (r == keepRing) {
+                            continue;
+                        }
+                        _rings[i] = r;
+                        _settings[i] =
+                            Math.floorMod(keepSetting + r - keepRing, n);
+                        double score = settingsScore();
+                        if (score > best) {
+                            best = score;
+                            improved = true;
+                        } else {
+                            _rings[i] = keepRing;
+                            _settings[i] = keepSetting;
+                        }
+                    }
+                }
+            }
+        }
+
+        /** Add, remove and exchange plugboard pairs, judged by
+         *  plugboardScore, until no such change improves the result. */
+        private void climbPlugboard() {
+            int n = _alphabet.size();
+            double best = plugboardScore();
+            boolean improved = true;
+            while (improved && !timeUp()) {
+                improved = false;
+                for (int a = 0; a < n; a += 1) {
+                    for (int b = a + 1; b < n; b += 1) {
+                        int pa = _plug[a], pb = _plug[b];
+                        _plug[pa] = pa;
+                        _plug[pb] = pb;
+                        if (pa != b) {
+                            _plug[a] = b;
+                            _plug[b] = a;
+                        }
+                        double score = plugboardScore();
+                        if (score > best) {
+                            best = score;
+                            improved = true;
+                        } else {
+                            _plug[a] = pa;
+                            _plug[pa] = a;
+                            _plug[b] = pb;
+                            _plug[pb] = b;
+                        }
+                    }
+                }
+            }
+        }
+
+        /** Fill _tables with the result of my machine, without plugboard,
+         *  on each index at each position of _cipher under my current
+         *  rotor and ring settings. */
+        private void tabulate() {
+            int n = _alphabet.size();
+            _machine.setRotors(_settings);
+            _machine.setRings(_rings);
+            for (int i = 0; i < _cipher.length; i += 1) {
+                _machine.advance();
+                for (int c = 0; c < n; c += 1) {
+                    _tables[i * n + c] = _machine.scramble(c);
+                }
+            }
+        }
+
+        /** Returns the score of the decryption of _cipher with my current
+         *  key, as tabulated in _tables. */
+        private double plugboardScore() {
+            int n = _alphabet.size();
+            int[] cipher = _cipher, plug = _plug, tables = _tables;
+            for (int i = 0; i < cipher.length; i += 1) {
+                _plain[i] = plug[tables[i * n + plug[cipher[i]]]];
+            }
+            if (_ngrams == null) {
+                return Ngrams.indexOfCoincidence(_plain, cipher.length, n,
+                                                 _counts);
+            }
+            return _ngrams.score(_plain, cipher.length);
+        }
+
+        /** Source of my starting plugboard. */
+        private final SplittableRandom _random;
+
+        /** Result of my machine, without plugboard, on index C at
+         *  position I of _cipher, at I * alphabet size + C. */
+        private int[] _tables;
+    }
+
+    /** Most settings tried by one Scan task. */
+    static final int CHUNK = 1 << 12;
+
+    /** Number of candidates kept by a scan. */
+    static final int CANDIDATES = 64;
+
+    /** Machine supplying my alphabet, slots and rotors. */
+    private final Machine _config;
+
+    /** Statistics by which plugboards are judged, or null. */
+    private final Ngrams _ngrams;
+
+    /** Pool on which restarts run. */
+    private final ForkJoinPool _pool;
+
+    /** Alphabet of _config. */
+    private final Alphabet _alphabet;
+
+    /** The rotor orders from which restarts choose. */
+    private final List<String[]> _orders;
+
+    /** Number of rotor settings of each rotor order. */
+    private final long _starts;
+
+    /** Number of rotor settings of all rotor orders. */
+    private final long _total;
+
+    /** Where improvements are reported, or null. */
+    private PrintStream _progress;
+
+    /** The ciphertext of the current search, as indices. */
+    private int[] _cipher;
+
+    /** Values of System.nanoTime() at which the current search began and
+     *  after which it begins no more restarts. */
+    private long _start, _deadline;
+
+    /** Most restarts the current search begins. */
+    private long _maxRestarts;
+
+    /** The keys from which restarts climb, as numbered by Scan. */
+    private long[] _candidates;
+
+    /** Number of restarts the current search has begun. */
+    private final AtomicLong _restarts = new AtomicLong();
+
+    /** Best settings found, or null. */
+    private String _best;
+
+    /** Score of _best. */
+    private double _bestScore;
+}
@@ -0,0 +1,160 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the HillClimber and Ngrams classes.
+ *  @author Ishaan Mauli Mishra
+ */
+public class HillClimberTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a 4-rotor, 3-pawl machine with reflector B and naval rotors
+     *  I, II and III available. */
+    private Machine smallMachine() {
+        Collection<Rotor> all = new ArrayList<>();
+        String[] moving = { "I", "II", "III" };
+        String[] notches = { "Q", "E", "V" };
+        for (int i = 0; i < moving.length; i += 1) {
+            all.add(new MovingRotor(moving[i],
+                                    new Permutation(NAVALA.get(moving[i]),
+                                                    UPPER),
+                                    notches[i]));
+        }
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        return new Machine(UPPER, 4, 3, all);
+    }
+
+    /** Sample of English from which n-gram statistics are taken. */
+    private static final String SAMPLE =
+        "It was the best of times, it was the worst of times, it was the "
+        + "age of wisdom, it was the age of foolishness, it was the epoch "
+        + "of belief, it was the epoch of incredulity, it was the season "
+        + "of Light, it was the season of Darkness, it was the spring of "
+        + "hope, it was the winter of despair, we had everything before "
+        + "us, we had nothing before us, we were all going direct to "
+        + "Heaven, we were all going direct the other way. In short, the "
+        + "period was so far like the present period, that some of its "
+        + "noisiest authorities insisted on its being received, for good "
+        + "or for evil, in the superlative degree of comparison only. "
+        + "There were a king with a large jaw and a queen with a plain "
+        + "face, on the throne of England; there were a king with a large "
+        + "jaw and a queen with a fair face, on the throne of France. In "
+        + "both countries it was clearer than crystal to the lords of the "
+        + "State preserves of loaves and fishes, that things in general "
+        + "were settled for ever. Call me Ishmael. Some years ago, never "
+        + "mind how long precisely, having little or no money in my "
+        + "purse, and nothing particular to interest me on shore, I "
+        + "thought I would sail about a little and see the watery part of "
+        + "the world. It is a way I have of driving off the spleen, and "
+        + "regulating the circulation. Whenever I find myself growing "
+        + "grim about the mouth; whenever it is a damp, drizzly November "
+        + "in my soul; whenever I find myself involuntarily pausing "
+        + "before coffin warehouses, and bringing up the rear of every "
+        + "funeral I meet; then, I account it high time to get to sea as "
+        + "soon as I can.";
+
+    /** Plaintext of the test message. */
+    private static final String PLAIN =
+        "THEWEATHERTODAYISCLEARWITHALIGHTWINDFROMTHENORTHWESTANDTHE"
+        + "CONVOYISEXPECTEDTOREACHTHEHARBORBEFOREDAWNALLSHIPSARETOKEEP"
+        + "RADIOSILENCEUNTILFURTHERORDERSTHECOMMANDERWILLMEETTHECAPTAINS"
+        + "ATNOONTOREVIEWTHEPLANSFORTHENEXTCROSSINGANDTHEDISTRIBUTIONOF"
+        + "FUELANDSUPPLIESAMONGTHEESCORTSTHEWEATHERISEXPECTEDTOWORSEN"
+        + "LATERINTHEWEEKSOTHEREISNOTIMETOLOSE";
+
+    /** Returns the fraction of the characters of A and B, which have the
+     *  same length, that are equal. */
+    private double agreement(String a, String b) {
+        int same = 0;
+        for (int i = 0; i < a.length(); i += 1) {
+            if (a.charAt(i) == b.charAt(i)) {
+                same += 1;
+            }
+        }
+        return (double) same / a.length();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testIndexOfCoincidence() {
+        int[] text = { 0, 0, 1, 1 };
+        assertEquals(2.0 / 3, Ngrams.indexOfCoincidence(text, 4, 2,
+                                                             new int[2]),
+                     1e-9);
+    }
+
+    @Test
+    public void testNgrams() {
+        Ngrams grams = new Ngrams(UPPER, SAMPLE, 3);
+        assertEquals(3, grams.length());
+        Alphabet a = UPPER;
+        int[] english = new int[PLAIN.length()];
+        int[] random = new int[PLAIN.length()];
+        for (int i = 0; i < PLAIN.length(); i += 1) {
+            english[i] = a.toInt(PLAIN.charAt(i));
+            random[i] = (i * 7 + 3) % 26;
+        }
+        assertTrue(grams.score(english, english.length)
+                   > grams.score(random, random.length));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testNgramsTooLong() {
+        new Ngrams(UPPER, SAMPLE, 6);
+    }
+
+    @Test
+    public void testRecoversKey() {
+        Machine M = smallMachine();
+        M.insertRotors(new String[] { "B", "III", "I", "II" });
+        M.setRotors("KDT");
+        M.setRings("AAF");
+        M.setPlugboard(new Permutation("(AZ) (QR) (ES) (NP)", UPPER));
+        String cipher = M.convert(PLAIN);
+        HillClimber climber =
+            new HillClimber(smallMachine(), new Ngrams(UPPER, SAMPLE, 3));
+        String best = climber.search(cipher, 20000, 100, 1);
+        assertNotNull(best);
+        Machine check = smallMachine();
+        String[] parts = best.split(" ", 7);
+        check.insertRotors(new String[] {
+            parts[0], parts[1], parts[2], parts[3] });
+        check.setRotors(parts[4]);
+        check.setRings(parts[5]);
+        check.setPlugboard(new Permutation(parts.length > 6 ? parts[6] : "",
+                                           UPPER));
+        assertTrue(best, agreement(PLAIN, check.convert(cipher)) > 0.9);
+    }
+
+    @Test
+    public void testTimeLimit() {
+        HillClimber climber = new HillClimber(smallMachine(), null);
+        long start = System.nanoTime();
+        climber.search("ABCDEFGHIJKLMNOPQRSTUVWXYZ", 200, Long.MAX_VALUE, 1);
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        assertTrue(climber.restarts() > 0);
+        assertNotNull(climber.best());
+    }
+
+    @Test
+    public void testNoTime() {
+        HillClimber climber = new HillClimber(smallMachine(), null);
+        assertNotNull(climber.search("ABCDEFGHIJKLMNOPQRSTUVWXYZ", 0, 0, 1));
+        assertEquals(1, climber.restarts());
+    }
+
+}
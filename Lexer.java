@@ -0,0 +1,107 @@
+package enigma;
+
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/** A single-pass reader of the tokens and lines of a text, as used by
+ *  configuration files and settings lines.  Tokens are maximal runs of
+ *  non-whitespace characters, and lines end as for LineReader.  Its
+ *  methods behave as do the Scanner methods of the same names on the same
+ *  text, throwing NoSuchElementException when what they ask for is
+ *  absent, but use no regular expressions.
+ *  @author Ishaan Mauli Mishra
+ */
+class Lexer {
+
+    /** A lexer reading TEXT from its start. */
+    Lexer(String text) {
+        _text = text;
+    }
+
+    /** Returns true iff there is another token. */
+    boolean hasNext() {
+        skipWhitespace();
+        return _pos < _text.length();
+    }
+
+    /** Returns the next token. */
+    String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int start = _pos;
+        while (_pos < _text.length()
+               && !Character.isWhitespace(_text.charAt(_pos))) {
+            _pos += 1;
+        }
+        return _text.substring(start, _pos);
+    }
+
+    /** Returns the next token as a decimal integer. */
+    int nextInt() {
+        int start = _pos;
+        String token = next();
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException excp) {
+            _pos = start;
+            throw new InputMismatchException(token);
+        }
+    }
+
+    /** Returns true iff the next token is a cycle: at least three
+     *  characters, the first '(' and the last ')'. */
+    boolean hasNextCycle() {
+        if (!hasNext() || _text.charAt(_pos) != '(') {
+            return false;
+        }
+        int end = _pos + 1;
+        while (end < _text.length()
+               && !Character.isWhitespace(_text.charAt(end))) {
+            end += 1;
+        }
+        return end - _pos >= 3 && _text.charAt(end - 1) == ')';
+    }
+
+    /** Returns true iff there is another line, possibly empty.  A
+     *  terminator at the very end of the text does not begin a line. */
+    boolean hasNextLine() {
+        return _pos < _text.length();
+    }
+
+    /** Returns the rest of the current line, without its terminator, and
+     *  moves to the start of the next. */
+    String nextLine() {
+        if (!hasNextLine()) {
+            throw new NoSuchElementException();
+        }
+        int start = _pos;
+        while (_pos < _text.length()
+               && !LineReader.isTerminator(_text.charAt(_pos))) {
+            _pos += 1;
+        }
+        String line = _text.substring(start, _pos);
+        if (_pos < _text.length()) {
+            _pos += 1;
+            if (_text.charAt(_pos - 1) == '\r' && _pos < _text.length()
+                && _text.charAt(_pos) == '\n') {
+                _pos += 1;
+            }
+        }
+        return line;
+    }
+
+    /** Moves past any whitespace at the current position. */
+    private void skipWhitespace() {
+        while (_pos < _text.length()
+               && Character.isWhitespace(_text.charAt(_pos))) {
+            _pos += 1;
+        }
+    }
+
+    /** The text read. */
+    private final String _text;
+
+    /** Position of the next unread character of _text. */
+    private int _pos;
+}
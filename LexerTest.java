@@ -0,0 +1,79 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/** The suite of all JUnit tests for the Lexer class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class LexerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testTokens() {
+        Lexer lex = new Lexer("  ABC\t5 3\n\nMQ (AB)(C)  ");
+        assertEquals("ABC", lex.next());
+        assertEquals(5, lex.nextInt());
+        assertEquals(3, lex.nextInt());
+        assertEquals("MQ", lex.next());
+        assertTrue(lex.hasNext());
+        assertEquals("(AB)(C)", lex.next());
+        assertFalse(lex.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNoToken() {
+        new Lexer(" \n ").next();
+    }
+
+    @Test
+    public void testBadInt() {
+        Lexer lex = new Lexer("x1 2");
+        try {
+            lex.nextInt();
+            fail("expected InputMismatchException");
+        } catch (InputMismatchException excp) {
+            assertEquals("x1", lex.next());
+            assertEquals(2, lex.nextInt());
+        }
+    }
+
+    @Test
+    public void testCycles() {
+        assertTrue(new Lexer(" (AB)").hasNextCycle());
+        assertTrue(new Lexer("(A)(B)").hasNextCycle());
+        assertFalse(new Lexer("()").hasNextCycle());
+        assertFalse(new Lexer("(AB").hasNextCycle());
+        assertFalse(new Lexer("M (AB)").hasNextCycle());
+        assertFalse(new Lexer("").hasNextCycle());
+    }
+
+    @Test
+    public void testLines() {
+        Lexer lex = new Lexer("AB\r\nC\rD\n\nE");
+        String[] expected = { "AB", "C", "D", "", "E" };
+        for (String line : expected) {
+            assertEquals(line, lex.nextLine());
+        }
+        assertFalse(lex.hasNext());
+    }
+
+    @Test
+    public void testTokensThenLine() {
+        Lexer lex = new Lexer("* I II A\nHELLO\n");
+        assertEquals("*", lex.next());
+        assertEquals(" I II A", lex.nextLine());
+        assertEquals("HELLO", lex.nextLine());
+    }
+
+}
@@ -0,0 +1,122 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import static enigma.EnigmaException.*;
+
+/** A reader of lines that can deliver a line in pieces, so that lines
+ *  need not fit in memory.  Lines end with any of the terminators
+ *  recognized by Scanner.nextLine: newline, carriage return, both
+ *  together, and the Unicode next-line, line- and paragraph-separator
+ *  characters.
+ *  @author Ishaan Mauli Mishra
+ */
+class LineReader {
+
+    /** A reader of the lines of IN, using a buffer of BUFSIZE chars. */
+    LineReader(Reader in, int bufSize) {
+        _in = in;
+        _buf = new char[bufSize];
+    }
+
+    /** Returns true iff there is another line, possibly empty, to be read.
+     *  As for Scanner, there is no empty line after a final terminator. */
+    boolean hasNextLine() {
+        if (_inLine) {
+            return true;
+        }
+        return fill();
+    }
+
+    /** Reads up to LEN characters of the current line into DST starting at
+     *  OFF, and returns the number read.  Returns -1, after consuming the
+     *  line terminator, if the rest of the line is empty; the next call
+     *  then starts on the following line. */
+    int read(char[] dst, int off, int len) {
+        if (!hasNextLine()) {
+            return -1;
+        }
+        _inLine = true;
+        int n = 0;
+        while (n < len) {
+            if (_pos == _limit && !fill()) {
+                break;
+            }
+            char c = _buf[_pos];
+            if (isTerminator(c)) {
+                break;
+            }
+            dst[off + n] = c;
+            n += 1;
+            _pos += 1;
+        }
+        if (n > 0) {
+            return n;
+        }
+        if (_pos < _limit) {
+            char c = _buf[_pos];
+            _pos += 1;
+            if (c == '\r' && (_pos < _limit || fill()) && _buf[_pos] == '\n') {
+                _pos += 1;
+            }
+        }
+        _inLine = false;
+        return -1;
+    }
+
+    /** Returns the rest of the current line, without its terminator, and
+     *  moves to the next line. */
+    String readLine() {
+        StringBuilder line = new StringBuilder();
+        char[] piece = new char[PIECE];
+        for (int n = read(piece, 0, PIECE); n != -1;
+             n = read(piece, 0, PIECE)) {
+            line.append(piece, 0, n);
+        }
+        return line.toString();
+    }
+
+    /** Returns true iff C ends a line. */
+    static boolean isTerminator(char c) {
+        return c == '\n' || c == '\r'
+            || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /** Ensures that _buf has unread characters, reading more if needed,
+     *  and returns false if the input is exhausted. */
+    private boolean fill() {
+        if (_pos < _limit) {
+            return true;
+        }
+        try {
+            int n;
+            do {
+                n = _in.read(_buf, 0, _buf.length);
+            } while (n == 0);
+            _pos = 0;
+            _limit = Math.max(n, 0);
+            return n > 0;
+        } catch (IOException excp) {
+            throw error("could not read input");
+        }
+    }
+
+    /** Size of the pieces in which readLine collects a line. */
+    private static final int PIECE = 1024;
+
+    /** Source of characters. */
+    private final Reader _in;
+
+    /** Characters read but not yet consumed are _buf[_pos .. _limit-1]. */
+    private final char[] _buf;
+
+    /** Position of the next unconsumed character in _buf. */
+    private int _pos;
+
+    /** End of valid data in _buf. */
+    private int _limit;
+
+    /** True iff part of the current line has been consumed. */
+    private boolean _inLine;
+}
@@ -0,0 +1,51 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+/** The suite of all JUnit tests for the LineReader class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class LineReaderTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testTerminators() {
+        LineReader r = new LineReader(new StringReader("AB\r\nC\rD\n\nE"), 2);
+        String[] expected = { "AB", "C", "D", "", "E" };
+        for (String line : expected) {
+            assertTrue(r.hasNextLine());
+            assertEquals(line, r.readLine());
+        }
+        assertFalse(r.hasNextLine());
+    }
+
+    @Test
+    public void testFinalTerminator() {
+        LineReader r = new LineReader(new StringReader("A\n"), 16);
+        assertEquals("A", r.readLine());
+        assertFalse(r.hasNextLine());
+        assertFalse(new LineReader(new StringReader(""), 16).hasNextLine());
+    }
+
+    @Test
+    public void testPieces() {
+        LineReader r = new LineReader(new StringReader("ABCDEFG\nH"), 3);
+        char[] piece = new char[4];
+        assertEquals(4, r.read(piece, 0, 4));
+        assertEquals("ABCD", new String(piece));
+        assertEquals(3, r.read(piece, 0, 4));
+        assertEquals(-1, r.read(piece, 0, 4));
+        assertEquals("H", r.readLine());
+    }
+
+}
@@ -1,9 +1,16 @@
 package enigma;
 
-import java.util.Collection;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 import static enigma.EnigmaException.*;
 
@@ -17,17 +24,109 @@ class Machine {
      *  available rotors. */
     Machine(Alphabet alpha, int numRotors, int pawls,
             Collection<Rotor> allRotors) {
+        this(alpha, numRotors, pawls, catalog(allRotors));
+    }
+
+    /** A new Enigma machine with alphabet ALPHA, NUMROTORS rotor slots and
+     *  PAWLS pawls, whose available rotors are the values of CATALOG,
+     *  each under its own name. */
+    private Machine(Alphabet alpha, int numRotors, int pawls,
+                    Map<String, Rotor> catalog) {
         _alphabet = alpha;
         _numRotors = numRotors;
         _pawls = pawls;
         if (pawls > numRotors) {
             throw error("number of pawls can't be more than number of rotors");
         }
-        _allRotors = allRotors;
-        if (numRotors > allRotors.size()) {
+        _catalog = catalog;
+        if (numRotors > catalog.size()) {
             throw error("numRotors > allRotors.size()");
         }
-        _rotors = new ArrayList<Rotor>();
+        _slots = new Rotor[0];
+        _settings = new int[0];
+        _shifts = new int[0];
+        _plugboard = new Permutation("", alpha);
+    }
+
+    /** Return ALLROTORS indexed by name. */
+    private static Map<String, Rotor> catalog(Collection<Rotor> allRotors) {
+        HashMap<String, Rotor> catalog = new HashMap<String, Rotor>();
+        for (Rotor r : allRotors) {
+            catalog.putIfAbsent(r.name(), r);
+        }
+        return catalog;
+    }
+
+    /** Return a new machine with my rotors, settings, rings and plugboard
+     *  that can be advanced independently of me. The two machines share
+     *  their available rotors, which they do not modify. */
+    Machine copy() {
+        Machine result = new Machine(_alphabet, _numRotors, _pawls, _catalog);
+        result._slots = _slots;
+        result._settings = _settings.clone();
+        result._shifts = _shifts.clone();
+        result._plugboard = _plugboard;
+        result._reflector = _reflector;
+        result._fixed = _fixed;
+        result._compiling = _compiling;
+        result._trajectory = _trajectory;
+        result._when = _when;
+        result._tail = _tail;
+        return result;
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return all the rotors available to me, in no particular order. */
+    Collection<Rotor> availableRotors() {
+        return Collections.unmodifiableCollection(_catalog.values());
+    }
+
+    /** Return every way of filling my rotor slots from my available
+     *  rotors, without repetition, that insertRotors accepts: a
+     *  reflector, then non-moving rotors, then moving rotors.  The orders
+     *  are listed in lexicographic order of the rotors' names. */
+    List<String[]> rotorOrders() {
+        TreeSet<String> reflectors = new TreeSet<String>();
+        TreeSet<String> fixed = new TreeSet<String>();
+        TreeSet<String> moving = new TreeSet<String>();
+        for (Rotor r : _catalog.values()) {
+            if (r.reflecting()) {
+                reflectors.add(r.name());
+            } else if (r.rotates()) {
+                moving.add(r.name());
+            } else {
+                fixed.add(r.name());
+            }
+        }
+        List<String[]> orders = new ArrayList<String[]>();
+        String[] order = new String[_numRotors];
+        for (String name : reflectors) {
+            order[0] = name;
+            addOrders(orders, order, 1, new ArrayList<String>(fixed),
+                      new ArrayList<String>(moving));
+        }
+        return orders;
+    }
+
+    /** Add to ORDERS every rotor order that agrees with ORDER in its
+     *  first K slots, filling the remaining non-moving slots from FIXED
+     *  and the moving slots from MOVING, without repetition. */
+    private void addOrders(List<String[]> orders, String[] order, int k,
+                           List<String> fixed, List<String> moving) {
+        if (k == order.length) {
+            orders.add(order.clone());
+            return;
+        }
+        List<String> choices = k < _numRotors - _pawls ? fixed : moving;
+        for (int i = 0; i < choices.size(); i += 1) {
+            order[k] = choices.remove(i);
+            addOrders(orders, order, k + 1, fixed, moving);
+            choices.add(i, order[k]);
+        }
     }
 
     /** Return the number of rotor slots I have. */
@@ -44,61 +143,375 @@ class Machine {
      *  available rotors (ROTORS[0] names the reflector).
      *  Initially, all rotors are set at their 0 setting. */
     void insertRotors(String[] rotors) {
-        _rotors = new ArrayList<Rotor>();
-        for (String name : rotors) {
-            Iterator<Rotor> allRotors = _allRotors.iterator();
-            while (allRotors.hasNext()) {
-                Rotor r = allRotors.next();
-                if (r.name().equals(name)) {
-                    _rotors.add(r);
-                }
+        _compiledChecked = false;
+        _when = null;
+        Rotor[] slots = new Rotor[rotors.length];
+        for (int i = 0; i < rotors.length; i += 1) {
+            slots[i] = _catalog.get(rotors[i]);
+            if (slots[i] == null) {
+                throw error("unknown rotor %s", rotors[i]);
             }
         }
-        if (!(_rotors.get(0) instanceof Reflector)) {
+        if (!(slots[0] instanceof Reflector)) {
             throw error("leftmost rotor is not a reflector");
         }
-        for (int  i = 1; i < _rotors.size(); i += 1) {
+        for (int  i = 1; i < slots.length; i += 1) {
             if (i < numRotors() - numPawls()
-                    && !(_rotors.get(i) instanceof FixedRotor)) {
-                throw error("rotor at posn %c must be FixedRotor", i + 1);
+                    && !(slots[i] instanceof FixedRotor)) {
+                throw error("rotor at posn %d must be FixedRotor", i + 1);
             } else if (i >= numRotors() - numPawls()
-                    && !(_rotors.get(i) instanceof MovingRotor)) {
-                throw error("rotor at posn %c must be MovingRotor", i + 1);
+                    && !(slots[i] instanceof MovingRotor)) {
+                throw error("rotor at posn %d must be MovingRotor", i + 1);
             }
         }
+        if (!foldsSame(slots)) {
+            _reflector = null;
+        }
+        _levelsValid = false;
+        _slots = slots;
+        if (_settings.length == slots.length) {
+            Arrays.fill(_settings, 0);
+            Arrays.fill(_shifts, 0);
+        } else {
+            _settings = new int[slots.length];
+            _shifts = new int[slots.length];
+        }
     }
 
     /** Set my rotors according to SETTING, which must be a string of
      *  numRotors()-1 characters in my alphabet. The first letter refers
      *  to the leftmost rotor setting (not counting the reflector).  */
     void setRotors(String setting) {
-        for (int i = 1; i < _rotors.size(); i += 1) {
-            _rotors.get(i).set(setting.charAt(i - 1));
+        _compiledChecked = false;
+        int[] cps = setting.codePoints().toArray();
+        if (cps.length < _slots.length - 1) {
+            throw error("too few rotor settings");
+        }
+        for (int i = 1; i < _slots.length; i += 1) {
+            int posn = _alphabet.codePointIndex(cps[i - 1]);
+            if (posn == -1) {
+                throw error("Character to set not in alphabet");
+            }
+            setSetting(i, posn);
+        }
+    }
+
+    /** Set my rotors to SETTINGS, which holds the indices of the settings
+     *  of the rotors in slots 1 through numRotors()-1, as for
+     *  setRotors. */
+    void setRotors(int[] settings) {
+        _compiledChecked = false;
+        for (int i = 1; i < _slots.length; i += 1) {
+            if (settings[i - 1] < 0 || settings[i - 1] >= _alphabet.size()) {
+                throw error("rotor setting out of range");
+            }
+            setSetting(i, settings[i - 1]);
+        }
+    }
+
+    /** Set the rotor in slot I to SETTING, discarding _reflector if
+     *  that changes a rotor folded into it. */
+    private void setSetting(int i, int setting) {
+        if (i < _fixed && _settings[i] != setting) {
+            _reflector = null;
+        }
+        _settings[i] = setting;
+    }
+
+    /** Set the Ringstellung shift of the rotor in slot I to SHIFT,
+     *  discarding _reflector if that changes a rotor folded into it. */
+    private void setShift(int i, int shift) {
+        if (i < _fixed && _shifts[i] != shift) {
+            _reflector = null;
+        }
+        _shifts[i] = shift;
+    }
+
+    /** Returns true iff _reflector is also the fold of SLOTS, newly
+     *  inserted at setting 0 with no shifts: that is, iff SLOTS has as
+     *  many slots as I do, the same rotors, at setting 0 with no shift,
+     *  in the slots my reflector replaces, and a rotor that rotates in
+     *  the slot after them iff mine does. */
+    private boolean foldsSame(Rotor[] slots) {
+        if (_reflector == null || _slots == null
+            || slots.length != _slots.length) {
+            return false;
         }
+        for (int i = 0; i < _fixed; i += 1) {
+            if (slots[i] != _slots[i] || _settings[i] != 0
+                || _shifts[i] != 0) {
+                return false;
+            }
+        }
+        return slots[_fixed].rotates() == _slots[_fixed].rotates();
     }
 
     /** Set the plugboard to PLUGBOARD. */
     void setPlugboard(Permutation plugboard) {
+        _compiledChecked = false;
         _plugboard = plugboard;
     }
 
+    /** Run in compiled mode if the substitution tables for all positions
+     *  of my moving rotors together take at most BUDGET bytes, and return
+     *  true iff compiled mode is now in effect. In compiled mode, the
+     *  substitution performed at each rotor position is computed once,
+     *  when that position is first reached, and looked up thereafter. The
+     *  tables do not depend on where the moving rotors start, and so are
+     *  kept when only those settings change; they are discarded when the
+     *  rotors, the rings, the plugboard or the settings of the non-moving
+     *  rotors change. A BUDGET of 0 turns compiled mode off. */
+    boolean setCompileBudget(long budget) {
+        int size = _alphabet.size();
+        long positions = 1;
+        for (int i = 0; i < numPawls() && positions <= Integer.MAX_VALUE;
+             i += 1) {
+            positions *= size;
+        }
+        _compiling = positions <= Integer.MAX_VALUE
+            && positions * (4L * size + 8) <= budget;
+        _compiled = null;
+        return _compiling;
+    }
+
+    /** Return the substitution table for the current positions of my
+     *  moving rotors, computing it if needed. */
+    private int[] compiledRow() {
+        int size = _alphabet.size();
+        if (!_compiledChecked) {
+            checkCompiled();
+        }
+        if (_compiled == null) {
+            int positions = 1;
+            for (int i = 0; i < numPawls(); i += 1) {
+                positions *= size;
+            }
+            _compiled = new int[positions][];
+        }
+        int position = position();
+        int[] row = _compiled[position];
+        if (row == null) {
+            row = new int[size];
+            for (int c = 0; c < size; c += 1) {
+                row[c] = substitute(c);
+            }
+            _compiled[position] = row;
+        }
+        return row;
+    }
+
+    /** Discard the tables of compiled mode if they were computed for
+     *  different rotors, rings, plugboard or non-moving rotor settings
+     *  than mine, and record those they are now for. */
+    private void checkCompiled() {
+        int fixed = _slots.length - numPawls();
+        int[] key = new int[_slots.length + fixed];
+        System.arraycopy(_shifts, 0, key, 0, _slots.length);
+        System.arraycopy(_settings, 0, key, _slots.length, fixed);
+        if (_compiled != null
+            && (!Arrays.equals(_slots, _compiledSlots)
+                || !Arrays.equals(key, _compiledKey)
+                || !_plugboard.sameMapping(_compiledPlugboard))) {
+            _compiled = null;
+        }
+        _compiledSlots = _slots;
+        _compiledKey = key;
+        _compiledPlugboard = _plugboard;
+        _compiledChecked = true;
+    }
+
     /** Advances the machine. */
     void advance() {
+        advance(true);
+    }
+
+    /** Advances the machine, adding the rotor movements and double steps
+     *  made to my counts iff COUNTED. */
+    private void advance(boolean counted) {
         boolean moved = false;
-        for (int i = 1; i < _rotors.size() - 1; i += 1) {
-            if (_rotors.get(i + 1).atNotch() && _rotors.get(i).rotates()) {
+        int steps = 0, doubleSteps = 0;
+        for (int i = 1; i < _slots.length - 1; i += 1) {
+            if (_slots[i + 1].atNotch(_settings[i + 1])
+                    && _slots[i].rotates()) {
                 if (!moved) {
-                    _rotors.get(i).advance();
+                    steps += step(i);
+                }
+                steps += step(i + 1);
+                if (i + 1 < _slots.length - 1) {
+                    doubleSteps += 1;
                 }
-                _rotors.get(i + 1).advance();
                 moved = true;
             } else {
                 moved = false;
             }
         }
         if (!moved) {
-            _rotors.get(_rotors.size() - 1).advance();
+            steps += step(_slots.length - 1);
+        }
+        if (counted) {
+            _rotorSteps += steps;
+            _doubleSteps += doubleSteps;
+        }
+    }
+
+    /** Advance the rotor in slot I one position, if it rotates, and
+     *  return the number of rotors moved (0 or 1). */
+    private int step(int i) {
+        if (_slots[i].rotates()) {
+            _settings[i] = _settings[i] + 1 == _alphabet.size()
+                ? 0 : _settings[i] + 1;
+            return 1;
+        }
+        return 0;
+    }
+
+    /** Returns the number of single-position rotor movements made in
+     *  converting characters or by advance since I was created,
+     *  including those counted with countSteps.  Moves made by seek are
+     *  not counted, and copies start from 0. */
+    long rotorSteps() {
+        return _rotorSteps;
+    }
+
+    /** Returns the number of the rotor movements counted by rotorSteps
+     *  that were double steps: movements of a rotor other than the
+     *  rightmost caused by its own notch. */
+    long doubleSteps() {
+        return _doubleSteps;
+    }
+
+    /** Add ROTORSTEPS rotor movements and DOUBLESTEPS double steps,
+     *  made on my behalf by copies of me, to my counts. */
+    void countSteps(long rotorSteps, long doubleSteps) {
+        _rotorSteps += rotorSteps;
+        _doubleSteps += doubleSteps;
+    }
+
+    /** Advances the machine STEPS times, as if STEPS characters had been
+     *  converted. */
+    void seek(long steps) {
+        if (steps < 0) {
+            throw error("cannot seek backwards");
+        }
+        if (schedule()) {
+            setPosition(_trajectory[scheduleIndex(steps)]);
+            return;
+        }
+        int fast = _slots.length - 1;
+        while (steps > 0) {
+            long leap = onlyFastRotorMoves()
+                ? _slots[fast].stepsToNotch(_settings[fast]) : 1;
+            if (leap == 1) {
+                advance(false);
+            } else {
+                leap = Math.min(leap, steps);
+                _settings[fast] =
+                    (int) ((_settings[fast] + leap) % _alphabet.size());
+            }
+            steps -= leap;
+        }
+    }
+
+    /** Returns the rotor settings, in the form accepted by setRotors,
+     *  that I would have after STEPS more advances. Does not change my
+     *  state. */
+    String positionAfter(long steps) {
+        int[] saved = _settings.clone();
+        seek(steps);
+        StringBuilder result = new StringBuilder();
+        for (int i = 1; i < _slots.length; i += 1) {
+            result.appendCodePoint(_alphabet.codePoint(_settings[i]));
+        }
+        _settings = saved;
+        return result.toString();
+    }
+
+    /** Returns the number of advances after which my rotors return to
+     *  their current positions, or, if the current positions cannot recur
+     *  (as with a middle rotor left at its notch), the period of the
+     *  cycle they eventually fall into. */
+    long period() {
+        if (!schedule()) {
+            throw error("stepping period is too long to compute");
+        }
+        return _trajectory.length - _tail;
+    }
+
+    /** Returns true iff advancing from the current state would move only
+     *  my rightmost rotor. */
+    private boolean onlyFastRotorMoves() {
+        for (int i = 1; i < _slots.length - 1; i += 1) {
+            if (_slots[i + 1].atNotch(_settings[i + 1])
+                    && _slots[i].rotates()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the positions of my moving rotors as a single number in
+     *  mixed radix, leftmost most significant. */
+    private int position() {
+        int size = _alphabet.size();
+        int position = 0;
+        for (int i = _slots.length - numPawls(); i < _slots.length; i += 1) {
+            position = position * size + _settings[i];
+        }
+        return position;
+    }
+
+    /** Sets my moving rotors to POSITION, as returned by position(). */
+    private void setPosition(int position) {
+        int size = _alphabet.size();
+        for (int i = _slots.length - 1; i >= _slots.length - numPawls();
+             i -= 1) {
+            _settings[i] = position % size;
+            position /= size;
+        }
+    }
+
+    /** Ensures that _trajectory holds the stepping schedule through my
+     *  current position, computing it if needed, and returns true, or
+     *  returns false if my moving rotors have too many positions for a
+     *  schedule to be kept. */
+    private boolean schedule() {
+        if (_when != null && _when[position()] != -1) {
+            return true;
         }
+        long positions = 1;
+        for (int i = 0; i < numPawls(); i += 1) {
+            positions *= _alphabet.size();
+            if (positions > MAX_SCHEDULE) {
+                return false;
+            }
+        }
+        int start = position();
+        _when = new int[(int) positions];
+        Arrays.fill(_when, -1);
+        int[] trajectory = new int[(int) positions];
+        int n;
+        int p = start;
+        for (n = 0; _when[p] == -1; n += 1) {
+            _when[p] = n;
+            trajectory[n] = p;
+            advance(false);
+            p = position();
+        }
+        _tail = _when[p];
+        _trajectory = Arrays.copyOf(trajectory, n);
+        setPosition(start);
+        return true;
+    }
+
+    /** Returns the index in _trajectory of the position STEPS advances
+     *  after the current one. */
+    private int scheduleIndex(long steps) {
+        int now = _when[position()];
+        if (steps < _trajectory.length - now) {
+            return now + (int) steps;
+        }
+        long period = _trajectory.length - _tail;
+        return _tail + (int) Math.floorMod(now - _tail + steps, period);
     }
 
     /** Returns the result of converting the input character C (as an
@@ -106,39 +519,250 @@ class Machine {
      *  the machine. */
     int convert(int c) {
         advance();
-        int p = _plugboard.permute(c);
-        for (int i = _rotors.size() - 1; i >= 0; i -= 1) {
-            p = _rotors.get(i).convertForward(p);
+        if (_compiling) {
+            return compiledRow()[c];
         }
-        for (int i = 1; i < _rotors.size(); i += 1) {
-            p = _rotors.get(i).convertBackward(p);
+        return substitute(c);
+    }
+
+    /** Returns the result of passing C (as an index in the range
+     *  0..alphabet size - 1) through the plugboard, rotors and reflector
+     *  in their current positions, without advancing. */
+    private int substitute(int c) {
+        return _plugboard.permute(scramble(_plugboard.permute(c)));
+    }
+
+    /** Returns the result of passing C (as an index in the range
+     *  0..alphabet size - 1) through my rotors and reflector in their
+     *  current positions, bypassing the plugboard and without
+     *  advancing. */
+    int scramble(int c) {
+        int fast = _slots.length - 1;
+        if (_reflector == null) {
+            fold();
         }
-        return _plugboard.permute(p);
+        int[] slow = slow(fast);
+        int offset = _settings[fast] - _shifts[fast];
+        Rotor rotor = _slots[fast];
+        return rotor.convertBackward(slow[rotor.convertForward(c, offset)],
+                                     offset);
+    }
+
+    /** Compose my reflector and the rotors to its left that never move,
+     *  at their current settings, into the single permutation
+     *  _reflector, and set _fixed to the number of slots it replaces.
+     *  The rightmost slot is never folded. */
+    private void fold() {
+        int fixed = 1;
+        while (fixed < _slots.length - 1 && !_slots[fixed].rotates()) {
+            fixed += 1;
+        }
+        Permutation folded =
+            _slots[0].permutation().rotated(_settings[0] - _shifts[0]);
+        for (int i = 1; i < fixed; i += 1) {
+            Permutation rotor =
+                _slots[i].permutation().rotated(_settings[i] - _shifts[i]);
+            folded = rotor.inverse().compose(folded.compose(rotor));
+        }
+        _fixed = fixed;
+        _reflector = folded;
+        _levelsValid = false;
+    }
+
+    /** Returns the result of passing each index through my rotors in
+     *  slots FAST-1 down to _fixed, _reflector, and back through slots
+     *  _fixed up to FAST-1, at their current settings: everything that
+     *  scramble does apart from the rotor in slot FAST.  The result is
+     *  kept in _levels, level by level, and only the levels at and above
+     *  the leftmost rotor that has moved since the last call are
+     *  recomputed. */
+    private int[] slow(int fast) {
+        int from = _fixed;
+        if (_levelsValid) {
+            while (from < fast
+                   && _levelKeys[from] == _settings[from] - _shifts[from]) {
+                from += 1;
+            }
+            if (from == fast) {
+                return _levels[fast - 1];
+            }
+        } else {
+            int size = _alphabet.size();
+            if (_levels == null || _levels.length != _slots.length
+                || _levels[0].length != size) {
+                _levels = new int[_slots.length][size];
+                _levelKeys = new int[_slots.length];
+            }
+            for (int c = 0; c < size; c += 1) {
+                _levels[_fixed - 1][c] = _reflector.permute(c);
+            }
+            _levelsValid = true;
+        }
+        for (int i = from; i < fast; i += 1) {
+            int offset = _settings[i] - _shifts[i];
+            int[] below = _levels[i - 1], level = _levels[i];
+            Rotor rotor = _slots[i];
+            for (int c = 0; c < level.length; c += 1) {
+                level[c] = rotor.convertBackward(
+                    below[rotor.convertForward(c, offset)], offset);
+            }
+            _levelKeys[i] = offset;
+        }
+        return _levels[fast - 1];
     }
 
     /** Returns the encoding/decoding of MSG, updating the state of
-     *  the rotors accordingly. */
+     *  the rotors accordingly.  If my alphabet has supplementary
+     *  characters, MSG is taken as a sequence of code points. */
     String convert(String msg) {
-        String converted = "";
-        for (int i = 0; i < msg.length(); i += 1) {
-            char c = msg.charAt(i);
+        if (_alphabet.supplementary()) {
+            return convertCodePoints(msg);
+        }
+        char[] in = msg.toCharArray();
+        char[] out = new char[in.length];
+        int n = convert(in, 0, in.length, out, 0);
+        return new String(out, 0, n);
+    }
+
+    /** Returns the encoding/decoding of the code points of MSG, skipping
+     *  blanks and updating the state of the rotors accordingly. */
+    private String convertCodePoints(String msg) {
+        StringBuilder result = new StringBuilder(msg.length());
+        int posn = 0;
+        for (int i = 0; i < msg.length(); posn += 1) {
+            int cp = msg.codePointAt(i);
+            i += Character.charCount(cp);
+            if (cp == ' ') {
+                continue;
+            }
+            int index = _alphabet.codePointIndex(cp);
+            if (index == -1) {
+                throw error("character %s at position %d not in alphabet",
+                            new String(Character.toChars(cp)), posn);
+            }
+            result.appendCodePoint(_alphabet.codePoint(convert(index)));
+        }
+        return result.toString();
+    }
+
+    /** Encodes or decodes the LEN characters of IN starting at OFF into
+     *  OUT starting at OUTOFF, updating the state of the rotors
+     *  accordingly, and returns the number of characters written.  Blanks
+     *  in IN are skipped; OUT must have room for the remaining
+     *  characters. */
+    int convert(char[] in, int off, int len, char[] out, int outOff) {
+        int k = outOff;
+        for (int i = off; i < off + len; i += 1) {
+            char c = in[i];
             if (c == ' ') {
                 continue;
             }
-            if (!_alphabet.contains(c)) {
-                throw error("char %d at posn %c not in alphabet", c, i);
+            int index = _alphabet.toInt(c);
+            if (index == -1) {
+                throw error("character %c at position %d not in alphabet",
+                            c, i - off);
             }
-            int convertedInt = convert(_alphabet.toInt(c));
-            converted += _alphabet.toChar(convertedInt);
+            out[k] = _alphabet.toChar(convert(index));
+            k += 1;
+        }
+        return k - outOff;
+    }
+
+    /** Encodes or decodes characters from IN into OUT, as for
+     *  convert(char[], int, int, char[], int), until IN is exhausted or
+     *  OUT is full. Advances the positions of both buffers past the
+     *  characters consumed and produced. */
+    void convert(CharBuffer in, CharBuffer out) {
+        if (in.hasArray() && out.hasArray()
+                && in.remaining() <= out.remaining()) {
+            int n = convert(in.array(), in.arrayOffset() + in.position(),
+                            in.remaining(), out.array(),
+                            out.arrayOffset() + out.position());
+            in.position(in.limit());
+            out.position(out.position() + n);
+            return;
+        }
+        int start = in.position();
+        while (in.hasRemaining() && out.hasRemaining()) {
+            char c = in.get();
+            if (c == ' ') {
+                continue;
+            }
+            int index = _alphabet.toInt(c);
+            if (index == -1) {
+                throw error("character %c at position %d not in alphabet",
+                            c, in.position() - 1 - start);
+            }
+            out.put(_alphabet.toChar(convert(index)));
+        }
+    }
+
+    /** Encodes or decodes the LEN bytes of IN starting at OFF into OUT
+     *  starting at OUTOFF, updating the state of the rotors accordingly.
+     *  Each byte stands for the symbol of my alphabet whose index is its
+     *  unsigned value, so my alphabet must have 256 symbols, as
+     *  ByteCatalog.ALPHABET does.  IN and OUT may be the same array. */
+    void convert(byte[] in, int off, int len, byte[] out, int outOff) {
+        checkBytes();
+        for (int i = 0; i < len; i += 1) {
+            out[outOff + i] = (byte) convert(in[off + i] & 0xFF);
+        }
+    }
+
+    /** Encodes or decodes bytes from IN into OUT, as for
+     *  convert(byte[], int, int, byte[], int), until IN is exhausted or
+     *  OUT is full.  Advances the positions of both buffers past the
+     *  bytes consumed and produced. */
+    void convert(ByteBuffer in, ByteBuffer out) {
+        checkBytes();
+        int n = Math.min(in.remaining(), out.remaining());
+        if (in.hasArray() && out.hasArray()) {
+            convert(in.array(), in.arrayOffset() + in.position(), n,
+                    out.array(), out.arrayOffset() + out.position());
+            in.position(in.position() + n);
+            out.position(out.position() + n);
+            return;
+        }
+        for (int i = 0; i < n; i += 1) {
+            out.put((byte) convert(in.get() & 0xFF));
+        }
+    }
+
+    /** Check that my alphabet has a symbol for each byte. */
+    private void checkBytes() {
+        if (_alphabet.size() != ByteCatalog.SYMBOLS) {
+            throw error("byte conversion requires a %d-symbol alphabet",
+                        ByteCatalog.SYMBOLS);
         }
-        return converted;
     }
 
     /** Sets the Ringsettlung for all rotors.
      * @param rings String of Ringstellung settings. */
     void setRings(String rings) {
-        for (int i = 1; i < _rotors.size(); i += 1) {
-            _rotors.get(i).shift(_alphabet.toInt(rings.charAt(i - 1)));
+        _compiledChecked = false;
+        int[] cps = rings.codePoints().toArray();
+        if (cps.length < _slots.length - 1) {
+            throw error("too few ring settings");
+        }
+        for (int i = 1; i < _slots.length; i += 1) {
+            int shift = _alphabet.codePointIndex(cps[i - 1]);
+            if (shift == -1) {
+                throw error("ring setting not in alphabet");
+            }
+            setShift(i, shift);
+        }
+    }
+
+    /** Sets the Ringstellung for all rotors to RINGS, which holds the
+     *  indices of the ring settings of the rotors in slots 1 through
+     *  numRotors()-1, as for setRings. */
+    void setRings(int[] rings) {
+        _compiledChecked = false;
+        for (int i = 1; i < _slots.length; i += 1) {
+            if (rings[i - 1] < 0 || rings[i - 1] >= _alphabet.size()) {
+                throw error("ring setting out of range");
+            }
+            setShift(i, rings[i - 1]);
         }
     }
 
@@ -151,12 +775,84 @@ class Machine {
     /** Number of pawls, i.e., number of moving rotors. */
     private int _pawls;
 
-    /** Collection of all available rotors. */
-    private Collection<Rotor> _allRotors;
+    /** All available rotors, by name. Shared with my copies. */
+    private final Map<String, Rotor> _catalog;
 
     /** Rotors in my rotor slots in order. */
-    private ArrayList<Rotor> _rotors;
+    private Rotor[] _slots;
+
+    /** Setting of the rotor in each slot. */
+    private int[] _settings;
+
+    /** Ringstellung shift of the rotor in each slot. */
+    private int[] _shifts;
 
     /** Plugboard connected to me. */
     private Permutation _plugboard;
+
+    /** My reflector composed with the rotors to its left that never
+     *  move, at their current settings, or null when discarded.  It
+     *  takes the place of the first _fixed rotor slots in scramble. */
+    private Permutation _reflector;
+
+    /** Number of my rotor slots, starting from the reflector, whose
+     *  rotors never move. */
+    private int _fixed;
+
+    /** For each slot I from _fixed-1 through numRotors()-2, the result
+     *  of passing each index through my rotors in slots I down to _fixed,
+     *  _reflector, and back, as computed by slow.  Not shared with
+     *  copies. */
+    private int[][] _levels;
+
+    /** The setting less the Ringstellung shift of the rotor in each slot
+     *  when its level of _levels was computed. */
+    private int[] _levelKeys;
+
+    /** True iff _levels was computed since _reflector was last folded. */
+    private boolean _levelsValid;
+
+    /** True iff I am in compiled mode. */
+    private boolean _compiling;
+
+    /** In compiled mode, the substitution table for each position of my
+     *  moving rotors (numbered in mixed radix, leftmost most significant),
+     *  or null for positions not yet reached. Null when discarded. */
+    private int[][] _compiled;
+
+    /** True iff _compiled is known to suit my current rotors, rings,
+     *  plugboard and non-moving rotor settings. */
+    private boolean _compiledChecked;
+
+    /** The rotors for which _compiled was computed. */
+    private Rotor[] _compiledSlots;
+
+    /** The plugboard for which _compiled was computed. */
+    private Permutation _compiledPlugboard;
+
+    /** The ring settings of all slots, followed by the settings of the
+     *  non-moving slots, for which _compiled was computed. */
+    private int[] _compiledKey;
+
+    /** Largest number of moving-rotor positions for which a stepping
+     *  schedule is kept. */
+    private static final long MAX_SCHEDULE = 1 << 22;
+
+    /** The sequence of positions (as returned by position()) that my
+     *  moving rotors pass through, ending just before the first repeated
+     *  one. Null if no schedule has been computed. */
+    private int[] _trajectory;
+
+    /** The index in _trajectory of each position, or -1 for positions not
+     *  in it. Null when discarded. */
+    private int[] _when;
+
+    /** The index in _trajectory at which its cycle starts. */
+    private int _tail;
+
+    /** Number of rotor movements counted by rotorSteps. */
+    private long _rotorSteps;
+
+    /** Number of double steps counted by doubleSteps. */
+    private long _doubleSteps;
 }
@@ -0,0 +1,330 @@
+package enigma;
+
+import java.util.HashMap;
+
+import static enigma.EnigmaException.*;
+
+/** A set of machines of the same configuration that convert the same
+ *  text at once, each under its own key (rotor order, settings, rings and
+ *  plugboard).  The machines are called lanes and numbered from 0.  Their
+ *  state is kept as arrays indexed by lane rather than as separate
+ *  Machine objects, and each stage of stepping and conversion is applied
+ *  to all lanes before the next, so that trying many keys on one text
+ *  costs a few array passes per character.  Each lane produces exactly
+ *  what Machine.convert would under its key.
+ *
+ *  When the module jdk.incubator.vector is present (as with the java
+ *  option --add-modules jdk.incubator.vector), the passes are made by
+ *  MachineBatchVectors over eight lanes at a time, and only the lanes
+ *  left over are converted one at a time.  Otherwise every lane is
+ *  converted by the scalar loops here.
+ *  @author Ishaan Mauli Mishra
+ */
+class MachineBatch {
+
+    /** A batch of LANES machines with the alphabet, slots, pawls and
+     *  available rotors of CONFIG.  Each lane must be given a key with
+     *  setKey before the batch converts anything. */
+    MachineBatch(Machine config, int lanes) {
+        this(config, lanes, vectorsAvailable());
+    }
+
+    /** A batch of LANES machines with the configuration of CONFIG, as
+     *  above, that uses the Vector API iff VECTORS.  VECTORS may be true
+     *  only if vectorsAvailable(). */
+    MachineBatch(Machine config, int lanes, boolean vectors) {
+        if (lanes < 1) {
+            throw error("a batch needs at least one lane");
+        }
+        _config = config;
+        _alphabet = config.alphabet();
+        _size = _alphabet.size();
+        _lanes = lanes;
+        _numRotors = config.numRotors();
+        _firstMoving = Math.max(1, _numRotors - config.numPawls());
+        int count = config.availableRotors().size();
+        _index = new HashMap<String, Integer>();
+        _forward = new int[count * _size];
+        _inverse = new int[count * _size];
+        _notches = new int[count * _size];
+        int r = 0;
+        for (Rotor rotor : config.availableRotors()) {
+            _index.put(rotor.name(), r);
+            Permutation perm = rotor.permutation();
+            for (int c = 0; c < _size; c += 1) {
+                _forward[r * _size + c] = perm.permute(c);
+                _inverse[r * _size + c] = perm.invert(c);
+                _notches[r * _size + c] = rotor.atNotch(c) ? 1 : 0;
+            }
+            r += 1;
+        }
+        _rotors = new int[_numRotors][lanes];
+        _settings = new int[_numRotors][lanes];
+        _rings = new int[_numRotors][lanes];
+        _plugboards = new int[lanes * _size];
+        _keyed = new boolean[lanes];
+        _moved = new boolean[lanes];
+        _chars = new int[lanes];
+        if (vectors) {
+            _vectors = new MachineBatchVectors(lanes, _size);
+            _scalarFrom = _vectors.bound();
+        } else {
+            _vectors = null;
+            _scalarFrom = 0;
+        }
+    }
+
+    /** Returns true iff the Vector API is available, so that batches can
+     *  use it. */
+    static boolean vectorsAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector")
+            .isPresent();
+    }
+
+    /** Returns true iff I convert with the Vector API. */
+    boolean vectorized() {
+        return _vectors != null;
+    }
+
+    /** Return the number of lanes. */
+    int lanes() {
+        return _lanes;
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Give LANE the key of a machine of my configuration after
+     *  insertRotors(ROTORS), setRotors(SETTINGS), setRings(RINGS) and
+     *  setPlugboard(PLUGBOARD).  SETTINGS and RINGS hold indices, as for
+     *  Machine.setRotors(int[]) and Machine.setRings(int[]). */
+    void setKey(int lane, String[] rotors, int[] settings, int[] rings,
+                Permutation plugboard) {
+        if (lane < 0 || lane >= _lanes) {
+            throw error("no lane %d", lane);
+        }
+        if (rotors.length != _numRotors) {
+            throw error("wrong number of rotors");
+        }
+        if (settings.length != _numRotors - 1
+            || rings.length != _numRotors - 1) {
+            throw error("wrong number of rotor or ring settings");
+        }
+        Machine check = _config.copy();
+        check.insertRotors(rotors);
+        check.setRotors(settings);
+        check.setRings(rings);
+        for (int i = 0; i < _numRotors; i += 1) {
+            _rotors[i][lane] = _index.get(rotors[i]);
+            _settings[i][lane] = i == 0 ? 0 : settings[i - 1];
+            _rings[i][lane] = i == 0 ? 0 : rings[i - 1];
+        }
+        for (int c = 0; c < _size; c += 1) {
+            _plugboards[lane * _size + c] = plugboard.permute(c);
+        }
+        _keyed[lane] = true;
+    }
+
+    /** Returns the settings of the rotors of LANE, in the form accepted
+     *  by Machine.setRotors(String). */
+    String settings(int lane) {
+        char[] result = new char[_numRotors - 1];
+        for (int i = 1; i < _numRotors; i += 1) {
+            result[i - 1] = _alphabet.toChar(_settings[i][lane]);
+        }
+        return new String(result);
+    }
+
+    /** Converts the LEN character indices in IN in every lane, as
+     *  Machine.convert(int) would one at a time, putting the results for
+     *  lane K in OUT[K][0 .. LEN-1].  Each index is checked, since a
+     *  vector gather does not check the indices it is given. */
+    void convert(int[] in, int len, int[][] out) {
+        for (int k = 0; k < _lanes; k += 1) {
+            if (!_keyed[k]) {
+                throw error("no key for lane %d", k);
+            }
+        }
+        for (int j = 0; j < len; j += 1) {
+            advance();
+            int[] p = _chars;
+            int c = in[j];
+            if (c < 0 || c >= _size) {
+                throw error("character index %d out of range", c);
+            }
+            if (_vectors != null) {
+                _vectors.plug(_plugboards, c, p);
+            }
+            for (int k = _scalarFrom; k < _lanes; k += 1) {
+                p[k] = _plugboards[k * _size + c];
+            }
+            for (int i = _numRotors - 1; i >= 0; i -= 1) {
+                pass(i, _forward, p);
+            }
+            for (int i = 1; i < _numRotors; i += 1) {
+                pass(i, _inverse, p);
+            }
+            if (_vectors != null) {
+                _vectors.plug(_plugboards, -1, p);
+            }
+            for (int k = _scalarFrom; k < _lanes; k += 1) {
+                p[k] = _plugboards[k * _size + p[k]];
+            }
+            for (int k = 0; k < _lanes; k += 1) {
+                out[k][j] = p[k];
+            }
+        }
+    }
+
+    /** Returns the encodings/decodings of MSG in each lane, as
+     *  Machine.convert(String) would give them, updating the rotors of
+     *  every lane accordingly. */
+    String[] convert(String msg) {
+        int[] in = new int[msg.length()];
+        int len = 0;
+        for (int i = 0; i < msg.length(); i += 1) {
+            char c = msg.charAt(i);
+            if (c == ' ') {
+                continue;
+            }
+            in[len] = _alphabet.toInt(c);
+            if (in[len] == -1) {
+                throw error("character %c at position %d not in alphabet",
+                            c, i);
+            }
+            len += 1;
+        }
+        int[][] out = new int[_lanes][len];
+        convert(in, len, out);
+        String[] result = new String[_lanes];
+        char[] chars = new char[len];
+        for (int k = 0; k < _lanes; k += 1) {
+            for (int j = 0; j < len; j += 1) {
+                chars[j] = _alphabet.toChar(out[k][j]);
+            }
+            result[k] = new String(chars);
+        }
+        return result;
+    }
+
+    /** Advances every lane, as Machine.advance does. */
+    void advance() {
+        if (_vectors != null) {
+            _vectors.advance(_settings, _rotors, _notches, _firstMoving);
+        }
+        boolean[] moved = _moved;
+        for (int k = _scalarFrom; k < _lanes; k += 1) {
+            moved[k] = false;
+        }
+        for (int i = _firstMoving; i < _numRotors - 1; i += 1) {
+            int[] left = _settings[i], right = _settings[i + 1];
+            int[] rotors = _rotors[i + 1];
+            for (int k = _scalarFrom; k < _lanes; k += 1) {
+                if (_notches[rotors[k] * _size + right[k]] != 0) {
+                    if (!moved[k]) {
+                        left[k] = left[k] + 1 == _size ? 0 : left[k] + 1;
+                    }
+                    right[k] = right[k] + 1 == _size ? 0 : right[k] + 1;
+                    moved[k] = true;
+                } else {
+                    moved[k] = false;
+                }
+            }
+        }
+        if (_firstMoving < _numRotors) {
+            int[] fast = _settings[_numRotors - 1];
+            for (int k = _scalarFrom; k < _lanes; k += 1) {
+                if (!moved[k]) {
+                    fast[k] = fast[k] + 1 == _size ? 0 : fast[k] + 1;
+                }
+            }
+        }
+    }
+
+    /** Replace each lane's entry of P by its conversion through the rotor
+     *  in slot I of that lane, in its current position, using TABLES,
+     *  which is _forward or _inverse. */
+    private void pass(int i, int[] tables, int[] p) {
+        int[] rotors = _rotors[i], settings = _settings[i];
+        int[] rings = _rings[i];
+        if (_vectors != null) {
+            _vectors.pass(tables, rotors, settings, rings, p);
+        }
+        for (int k = _scalarFrom; k < _lanes; k += 1) {
+            int offset = settings[k] - rings[k];
+            if (offset < 0) {
+                offset += _size;
+            }
+            int x = p[k] + offset;
+            if (x >= _size) {
+                x -= _size;
+            }
+            int y = tables[rotors[k] * _size + x] - offset;
+            p[k] = y < 0 ? y + _size : y;
+        }
+    }
+
+    /** The machine whose configuration I share, used to check keys. */
+    private final Machine _config;
+
+    /** Common alphabet of my lanes. */
+    private final Alphabet _alphabet;
+
+    /** Size of _alphabet. */
+    private final int _size;
+
+    /** Number of lanes. */
+    private final int _lanes;
+
+    /** Number of rotor slots. */
+    private final int _numRotors;
+
+    /** The leftmost slot holding a moving rotor, or _numRotors if there
+     *  is none. */
+    private final int _firstMoving;
+
+    /** The number of each available rotor in the tables below. */
+    private final HashMap<String, Integer> _index;
+
+    /** The permutation of available rotor R, taking C to
+     *  _forward[R * _size + C]. */
+    private final int[] _forward;
+
+    /** The inverse permutations of the available rotors, laid out as
+     *  _forward. */
+    private final int[] _inverse;
+
+    /** 1 at [R * _size + C] iff available rotor R has a notch at C, and
+     *  otherwise 0. */
+    private final int[] _notches;
+
+    /** The number of the rotor in slot I of lane K, at [I][K]. */
+    private final int[][] _rotors;
+
+    /** The setting of the rotor in slot I of lane K, at [I][K]. */
+    private final int[][] _settings;
+
+    /** The ring setting of the rotor in slot I of lane K, at [I][K]. */
+    private final int[][] _rings;
+
+    /** The plugboard of lane K, taking C to _plugboards[K * _size + C]. */
+    private final int[] _plugboards;
+
+    /** True for each lane that has been given a key. */
+    private final boolean[] _keyed;
+
+    /** Whether each lane's previous slot moved, while advancing. */
+    private final boolean[] _moved;
+
+    /** Each lane's character, while converting. */
+    private final int[] _chars;
+
+    /** The vector stages for lanes 0 .. _scalarFrom-1, or null if I do
+     *  not use the Vector API. */
+    private final MachineBatchVectors _vectors;
+
+    /** The first lane converted by the scalar loops. */
+    private final int _scalarFrom;
+}
@@ -0,0 +1,171 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the MachineBatch class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class MachineBatchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a machine with NUMROTORS slots and PAWLS pawls and all the
+     *  naval rotors, with no rotors inserted. */
+    private Machine navalConfig(int numRotors, int pawls) {
+        Collection<Rotor> all = new ArrayList<>();
+        String[] moving = { "I", "II", "III", "IV", "V", "VI", "VII",
+                            "VIII" };
+        String[] notches = { "Q", "E", "V", "J", "Z", "ZM", "ZM", "ZM" };
+        for (int i = 0; i < moving.length; i += 1) {
+            all.add(new MovingRotor(moving[i],
+                                    new Permutation(NAVALA.get(moving[i]),
+                                                    UPPER),
+                                    notches[i]));
+        }
+        for (String name : new String[] { "Beta", "Gamma" }) {
+            all.add(new FixedRotor(name, new Permutation(NAVALA.get(name),
+                                                         UPPER)));
+        }
+        for (String name : new String[] { "B", "C" }) {
+            all.add(new Reflector(name, new Permutation(NAVALA.get(name),
+                                                        UPPER)));
+        }
+        return new Machine(UPPER, numRotors, pawls, all);
+    }
+
+    /** Return a random plugboard over UPPER with up to 10 pairs, chosen
+     *  with RAND. */
+    private Permutation plugboard(Random rand) {
+        List<Character> letters = new ArrayList<>();
+        for (int i = 0; i < UPPER.size(); i += 1) {
+            letters.add(UPPER.toChar(i));
+        }
+        Collections.shuffle(letters, rand);
+        StringBuilder cycles = new StringBuilder();
+        for (int i = rand.nextInt(11); i > 0; i -= 1) {
+            cycles.append('(').append(letters.get(2 * i))
+                .append(letters.get(2 * i + 1)).append(')');
+        }
+        return new Permutation(cycles.toString(), UPPER);
+    }
+
+    /** Return NUM random indices in UPPER, chosen with RAND. */
+    private int[] indices(Random rand, int num) {
+        int[] result = new int[num];
+        for (int i = 0; i < num; i += 1) {
+            result[i] = rand.nextInt(UPPER.size());
+        }
+        return result;
+    }
+
+    /** Check that a batch of LANES random keys for CONFIG converts MSG as
+     *  separate machines do, using SEED to choose the keys. */
+    private void checkRandomKeys(Machine config, int lanes, String msg,
+                                 long seed) {
+        checkRandomKeys(config, lanes, msg, seed, false);
+        if (MachineBatch.vectorsAvailable()) {
+            checkRandomKeys(config, lanes, msg, seed, true);
+        }
+    }
+
+    /** Check that a batch of LANES random keys for CONFIG, using the
+     *  Vector API iff VECTORS, converts MSG as separate machines do,
+     *  using SEED to choose the keys. */
+    private void checkRandomKeys(Machine config, int lanes, String msg,
+                                 long seed, boolean vectors) {
+        Random rand = new Random(seed);
+        List<String[]> orders = config.rotorOrders();
+        MachineBatch batch = new MachineBatch(config, lanes, vectors);
+        assertEquals(vectors, batch.vectorized());
+        Machine[] machines = new Machine[lanes];
+        for (int k = 0; k < lanes; k += 1) {
+            String[] order = orders.get(rand.nextInt(orders.size()));
+            int[] settings = indices(rand, config.numRotors() - 1);
+            int[] rings = indices(rand, config.numRotors() - 1);
+            Permutation plugs = plugboard(rand);
+            batch.setKey(k, order, settings, rings, plugs);
+            machines[k] = config.copy();
+            machines[k].insertRotors(order);
+            machines[k].setRotors(settings);
+            machines[k].setRings(rings);
+            machines[k].setPlugboard(plugs);
+        }
+        String[] results = batch.convert(msg);
+        assertEquals(lanes, results.length);
+        for (int k = 0; k < lanes; k += 1) {
+            assertEquals(msg("random keys", "lane %d", k),
+                         machines[k].convert(msg), results[k]);
+            assertEquals(msg("random keys", "settings of lane %d", k),
+                         machines[k].positionAfter(0), batch.settings(k));
+        }
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testKnownKey() {
+        Machine config = navalConfig(5, 3);
+        MachineBatch batch = new MachineBatch(config, 2);
+        String[] order = { "B", "Beta", "III", "IV", "I" };
+        Permutation plugs = new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                            UPPER);
+        batch.setKey(0, order, new int[] { 0, 23, 11, 4 },
+                     new int[] { 0, 0, 0, 0 }, plugs);
+        batch.setKey(1, order, new int[] { 0, 23, 11, 4 },
+                     new int[] { 0, 0, 0, 0 }, plugs);
+        String[] results = batch.convert("FROM HIS SHOULDER HIAWATHA");
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW", results[0]);
+        assertEquals("QVPQSOKOILPUBKJZPISFXDW", results[1]);
+    }
+
+    @Test
+    public void testRandomKeys() {
+        StringBuilder text = new StringBuilder();
+        Random rand = new Random(7);
+        for (int i = 0; i < 2000; i += 1) {
+            text.append(UPPER.toChar(rand.nextInt(UPPER.size())));
+        }
+        checkRandomKeys(navalConfig(5, 3), 37, text.toString(), 1);
+        checkRandomKeys(navalConfig(5, 4), 5, text.toString(), 2);
+        checkRandomKeys(navalConfig(4, 1), 5, text.toString(), 3);
+        checkRandomKeys(navalConfig(3, 0), 3, text.toString(), 4);
+        checkRandomKeys(navalConfig(5, 3), 67, text.toString(), 5);
+    }
+
+    @Test
+    public void testMissingKey() {
+        Machine config = navalConfig(5, 3);
+        MachineBatch batch = new MachineBatch(config, 2);
+        batch.setKey(0, new String[] { "B", "Beta", "III", "IV", "I" },
+                     new int[4], new int[4], new Permutation("", UPPER));
+        try {
+            batch.convert("A");
+            fail("converted without a key for lane 1");
+        } catch (EnigmaException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadOrder() {
+        new MachineBatch(navalConfig(5, 3), 1)
+            .setKey(0, new String[] { "B", "I", "III", "IV", "Beta" },
+                    new int[4], new int[4], new Permutation("", UPPER));
+    }
+
+}
@@ -0,0 +1,132 @@
+package enigma;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** The stages of a MachineBatch applied with the (incubating) Vector API
+ *  to eight lanes at a time.  Lookups in the rotor, notch and plugboard
+ *  tables are gathers, and the wrapping of positions around the alphabet
+ *  and the stepping of rotors are adds of sign masks computed by shifts,
+ *  which proved faster than blending with VectorMasks.  Vectors are
+ *  limited to 256 bits because the C2 compiler of JDK 17 can miscompile
+ *  512-bit gathers on processors with AVX-512, crashing the JVM.  Only
+ *  lanes 0 .. bound()-1 are handled here; the batch converts the rest
+ *  one lane at a time.  This class must be used only if the module
+ *  jdk.incubator.vector is present, as MachineBatch.vectorsAvailable()
+ *  reports.
+ *  @author Ishaan Mauli Mishra
+ */
+final class MachineBatchVectors {
+
+    /** Vectors for a batch of LANES lanes over an alphabet of SIZE
+     *  characters. */
+    MachineBatchVectors(int lanes, int size) {
+        _size = size;
+        _bound = SPECIES.loopBound(lanes);
+        _index = new int[SPECIES.length()];
+        _base = new int[lanes];
+        for (int k = 0; k < lanes; k += 1) {
+            _base[k] = k * size;
+        }
+    }
+
+    /** Returns the number of lanes, counting from 0, that I handle. */
+    int bound() {
+        return _bound;
+    }
+
+    /** Advances my lanes of the rotors whose settings and numbers are in
+     *  SETTINGS and ROTORS, as MachineBatch.advance does, where NOTCHES
+     *  is 1 at [R * size + C] iff rotor R has a notch at C, and the
+     *  moving rotors are in slots FIRSTMOVING up to the last. */
+    void advance(int[][] settings, int[][] rotors, int[] notches,
+                 int firstMoving) {
+        int last = settings.length - 1;
+        for (int k = 0; k < _bound; k += SPECIES.length()) {
+            IntVector moved = IntVector.zero(SPECIES);
+            for (int i = firstMoving; i < last; i += 1) {
+                IntVector left = IntVector.fromArray(SPECIES, settings[i], k);
+                IntVector right =
+                    IntVector.fromArray(SPECIES, settings[i + 1], k);
+                IntVector.fromArray(SPECIES, rotors[i + 1], k).mul(_size)
+                    .add(right).intoArray(_index, 0);
+                IntVector notch =
+                    IntVector.fromArray(SPECIES, notches, 0, _index, 0);
+                wrap(left.add(notch.sub(notch.and(moved))))
+                    .intoArray(settings[i], k);
+                wrap(right.add(notch)).intoArray(settings[i + 1], k);
+                moved = notch;
+            }
+            if (firstMoving <= last) {
+                IntVector fast = IntVector.fromArray(SPECIES, settings[last],
+                                                     k);
+                wrap(fast.add(1).sub(moved)).intoArray(settings[last], k);
+            }
+        }
+    }
+
+    /** Set P[K] to PLUGBOARDS[K * size + P[K]] for each of my lanes K,
+     *  or, if C is not negative, to PLUGBOARDS[K * size + C]. */
+    void plug(int[] plugboards, int c, int[] p) {
+        for (int k = 0; k < _bound; k += SPECIES.length()) {
+            IntVector base = IntVector.fromArray(SPECIES, _base, k);
+            if (c >= 0) {
+                base = base.add(c);
+            } else {
+                base = base.add(IntVector.fromArray(SPECIES, p, k));
+            }
+            base.intoArray(_index, 0);
+            IntVector.fromArray(SPECIES, plugboards, 0, _index, 0)
+                .intoArray(p, k);
+        }
+    }
+
+    /** Replace each of my lanes' entries of P by its conversion through
+     *  the rotor whose number is in ROTORS, at the setting in SETTINGS
+     *  and ring setting in RINGS, using TABLES, which holds the
+     *  permutations or inverse permutations of the rotors as in
+     *  MachineBatch. */
+    void pass(int[] tables, int[] rotors, int[] settings, int[] rings,
+              int[] p) {
+        for (int k = 0; k < _bound; k += SPECIES.length()) {
+            IntVector offset =
+                unwrap(IntVector.fromArray(SPECIES, settings, k)
+                       .sub(IntVector.fromArray(SPECIES, rings, k)));
+            IntVector x =
+                wrap(IntVector.fromArray(SPECIES, p, k).add(offset));
+            IntVector.fromArray(SPECIES, rotors, k).mul(_size).add(x)
+                .intoArray(_index, 0);
+            unwrap(IntVector.fromArray(SPECIES, tables, 0, _index, 0)
+                   .sub(offset)).intoArray(p, k);
+        }
+    }
+
+    /** Returns X, whose lanes are in the range 0 .. 2 * size - 1, with
+     *  size subtracted from those of at least size. */
+    private IntVector wrap(IntVector x) {
+        return unwrap(x.sub(_size));
+    }
+
+    /** Returns X, whose lanes are in the range -size .. size - 1, with
+     *  size added to those that are negative. */
+    private IntVector unwrap(IntVector x) {
+        return x.add(x.lanewise(VectorOperators.ASHR, 31).and(_size));
+    }
+
+    /** The shape of my vectors (see above). */
+    private static final VectorSpecies<Integer> SPECIES =
+        IntVector.SPECIES_256;
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Number of lanes handled by vectors. */
+    private final int _bound;
+
+    /** Indices of a gather, one vector's worth. */
+    private final int[] _index;
+
+    /** The start of each lane's plugboard, K * _size for lane K. */
+    private final int[] _base;
+}
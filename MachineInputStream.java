@@ -0,0 +1,66 @@
+package enigma;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** An InputStream that reads bytes from another stream and delivers their
+ *  conversions by a machine whose alphabet has 256 symbols (see
+ *  ByteCatalog).  Bytes are converted in place in the caller's array as
+ *  they are read, so reading allocates nothing.  Skipped bytes advance
+ *  the machine as if they had been read.
+ *  @author Ishaan Mauli Mishra
+ */
+class MachineInputStream extends FilterInputStream {
+
+    /** A stream delivering the conversions by M of the bytes read from
+     *  IN.  M is advanced by each byte read or skipped. */
+    MachineInputStream(InputStream in, Machine m) {
+        super(in);
+        _machine = m;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n = read(_single, 0, 1);
+        return n == -1 ? -1 : _single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            _machine.convert(b, off, n, b, off);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        if (skipped > 0) {
+            _machine.seek(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /** The machine converting my bytes. */
+    private final Machine _machine;
+
+    /** Holds the result of read(). */
+    private final byte[] _single = new byte[1];
+}
@@ -0,0 +1,55 @@
+package enigma;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** An OutputStream that converts the bytes written to it with a machine
+ *  whose alphabet has 256 symbols (see ByteCatalog) and writes the results
+ *  to another stream.  Bytes are converted a block at a time into a
+ *  buffer of the stream's own, so writing allocates nothing and the
+ *  caller's arrays are left unchanged.
+ *  @author Ishaan Mauli Mishra
+ */
+class MachineOutputStream extends FilterOutputStream {
+
+    /** A stream writing the conversions by M of the bytes written to it
+     *  to OUT.  M is advanced by each byte written. */
+    MachineOutputStream(OutputStream out, Machine m) {
+        super(out);
+        _machine = m;
+        _buffer = new byte[BLOCK];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        _single[0] = (byte) b;
+        write(_single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            int n = Math.min(len, _buffer.length);
+            _machine.convert(b, off, n, _buffer, 0);
+            out.write(_buffer, 0, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /** Number of bytes converted at a time. */
+    static final int BLOCK = 1 << 16;
+
+    /** The machine converting my bytes. */
+    private final Machine _machine;
+
+    /** Holds converted bytes. */
+    private final byte[] _buffer;
+
+    /** Holds the argument of write(int). */
+    private final byte[] _single = new byte[1];
+}
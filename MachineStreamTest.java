@@ -0,0 +1,109 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the MachineInputStream and
+ *  MachineOutputStream classes.
+ *  @author Ishaan Mauli Mishra
+ */
+public class MachineStreamTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a byte machine set up with the standard settings. */
+    private Machine byteMachine() {
+        Machine M = ByteCatalog.generate(11, 5, 3, 8);
+        Main.setUp(M, "R F1 M2 M4 M6 zzzz (ab)");
+        return M;
+    }
+
+    /** Return the conversion of DATA by byteMachine(). */
+    private byte[] expected(byte[] data) {
+        byte[] result = new byte[data.length];
+        byteMachine().convert(data, 0, data.length, result, 0);
+        return result;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testOutput() throws IOException {
+        byte[] data = randomBytes(1, 3 * MachineOutputStream.BLOCK + 17);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        byte[] copy = data.clone();
+        try (OutputStream out = new MachineOutputStream(sink,
+                                                        byteMachine())) {
+            out.write(copy[0]);
+            out.write(copy, 1, 100);
+            out.write(copy, 101, copy.length - 101);
+        }
+        assertArrayEquals(data, copy);
+        assertArrayEquals(expected(data), sink.toByteArray());
+    }
+
+    @Test
+    public void testInput() throws IOException {
+        byte[] data = randomBytes(2, 200000);
+        byte[] result = new byte[data.length];
+        try (InputStream in = new MachineInputStream(
+                 new ByteArrayInputStream(data), byteMachine())) {
+            result[0] = (byte) in.read();
+            int n = 1;
+            while (n < result.length) {
+                int k = in.read(result, n, Math.min(1000,
+                                                    result.length - n));
+                assertTrue(k > 0);
+                n += k;
+            }
+            assertEquals(-1, in.read());
+            assertEquals(-1, in.read(result, 0, 10));
+        }
+        assertArrayEquals(expected(data), result);
+    }
+
+    @Test
+    public void testSkip() throws IOException {
+        byte[] data = randomBytes(3, 10000);
+        byte[] wanted = expected(data);
+        InputStream in = new MachineInputStream(
+            new ByteArrayInputStream(data), byteMachine());
+        assertEquals(7000, in.skip(7000));
+        byte[] rest = new byte[3000];
+        assertEquals(3000, in.readNBytes(rest, 0, rest.length));
+        for (int i = 0; i < rest.length; i += 1) {
+            assertEquals(wanted[7000 + i], rest[i]);
+        }
+        assertFalse(in.markSupported());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        byte[] data = randomBytes(4, 100000);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (OutputStream out = new MachineOutputStream(sink,
+                                                        byteMachine())) {
+            out.write(data);
+        }
+        try (InputStream in = new MachineInputStream(
+                 new ByteArrayInputStream(sink.toByteArray()),
+                 byteMachine())) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+}
@@ -0,0 +1,289 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Machine class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class MachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a machine with naval rotors I through V, set to
+     *  "B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)". */
+    private Machine standardMachine() {
+        Machine M = navalMachine("I", "II", "III", "IV", "V");
+        M.insertRotors(new String[] { "B", "Beta", "III", "IV", "I" });
+        M.setRotors("AXLE");
+        M.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)", UPPER));
+        return M;
+    }
+
+    /** Plaintext of the standard test message. */
+    private static final String PLAIN = "FROM HIS SHOULDER HIAWATHA";
+
+    /** Ciphertext of PLAIN under standardMachine(). */
+    private static final String CIPHER = "QVPQSOKOILPUBKJZPISFXDW";
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testConvertString() {
+        assertEquals(CIPHER, standardMachine().convert(PLAIN));
+    }
+
+    @Test
+    public void testConvertArray() {
+        char[] in = ("xx" + PLAIN).toCharArray();
+        char[] out = new char[CIPHER.length() + 1];
+        int n = standardMachine().convert(in, 2, PLAIN.length(), out, 1);
+        assertEquals(CIPHER.length(), n);
+        assertEquals(CIPHER, new String(out, 1, n));
+    }
+
+    @Test
+    public void testConvertBuffers() {
+        Machine M = standardMachine();
+        CharBuffer in = CharBuffer.wrap(PLAIN);
+        CharBuffer out = CharBuffer.allocate(10);
+        StringBuilder result = new StringBuilder();
+        while (in.hasRemaining()) {
+            M.convert(in, out);
+            out.flip();
+            result.append(out);
+            out.clear();
+        }
+        assertEquals(CIPHER, result.toString());
+    }
+
+    @Test
+    public void testCompiled() {
+        StringBuilder msg = new StringBuilder();
+        for (int i = 0; i < 20000; i += 1) {
+            msg.append(UPPER_STRING.charAt((i * 7 + i / 26) % 26));
+        }
+        Machine M = standardMachine();
+        assertTrue(M.setCompileBudget(1 << 24));
+        assertEquals(standardMachine().convert(msg.toString()),
+                     M.convert(msg.toString()));
+        assertFalse(M.setCompileBudget(1 << 10));
+    }
+
+    @Test
+    public void testCompiledKeyChanges() {
+        String[] settings = {
+            "B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)",
+            "B Beta III IV I QRST (HQ) (EX) (IP) (TR) (BY)",
+            "B Beta III IV I QRST (HQ) (EX) (IP) (TR) (BY)",
+            "B Beta III IV I XRST (HQ) (EX) (IP) (TR) (BY)",
+            "B Beta III IV I XRST BCDE (HQ) (EX) (IP) (TR) (BY)",
+            "B Beta III IV I XRST BCDE (HQ) (EX)",
+            "B Beta I II III XRST BCDE (HQ) (EX)",
+        };
+        Machine M = standardMachine();
+        Machine plain = standardMachine();
+        assertTrue(M.setCompileBudget(1 << 24));
+        for (String setting : settings) {
+            Main.setUp(M, setting);
+            Main.setUp(plain, setting);
+            assertEquals(plain.convert(PLAIN + PLAIN),
+                         M.convert(PLAIN + PLAIN));
+        }
+    }
+
+    @Test
+    public void testSeek() {
+        Machine M = standardMachine();
+        Machine stepped = standardMachine();
+        long[] jumps = { 0, 1, 5, 400, 17, 16900, 3000, 123456789L };
+        for (long n : jumps) {
+            String expected = M.positionAfter(n);
+            M.seek(n);
+            long k = n < 16900 ? n : 16900 + n % 16900;
+            for (; k > 0; k -= 1) {
+                stepped.advance();
+            }
+            assertEquals(expected, stepped.positionAfter(0));
+            assertEquals(expected, M.positionAfter(0));
+        }
+        assertEquals(16900, M.period());
+    }
+
+    @Test
+    public void testSeekBeforeCycle() {
+        long[] jumps = { 1, 2, 3, 16899, 16900, 16901, 33800, 50700,
+                         123456789L };
+        for (long n : jumps) {
+            Machine M = standardMachine();
+            M.setRotors("AAJA");
+            String expected = M.positionAfter(n);
+            M.seek(n);
+            Machine stepped = standardMachine();
+            stepped.setRotors("AAJA");
+            long k = n < 2 * 16900 ? n : 16900 + n % 16900;
+            for (; k > 0; k -= 1) {
+                stepped.advance();
+            }
+            assertEquals(stepped.positionAfter(0), expected);
+            assertEquals(stepped.positionAfter(0), M.positionAfter(0));
+        }
+    }
+
+    @Test
+    public void testSeekDoubleStep() {
+        Machine M = standardMachine();
+        M.setRotors("AAIP");
+        assertEquals("AAIQ", M.positionAfter(1));
+        assertEquals("AAJR", M.positionAfter(2));
+        assertEquals("ABKS", M.positionAfter(3));
+        M.setRotors("AAJR");
+        assertEquals("ABKS", M.positionAfter(1));
+    }
+
+    @Test
+    public void testStepCounts() {
+        Machine M = standardMachine();
+        M.setRotors("AAIP");
+        M.seek(3);
+        assertEquals(0, M.rotorSteps());
+        M.setRotors("AAIP");
+        M.convert("ABC");
+        assertEquals(6, M.rotorSteps());
+        assertEquals(1, M.doubleSteps());
+        assertEquals(0, M.copy().rotorSteps());
+    }
+
+    /** Returns the result of passing C through the rotors in SLOTS,
+     *  whose settings less their ring settings are OFFSETS, and back, one
+     *  rotor at a time. */
+    private int scrambleSlowly(Rotor[] slots, int[] offsets, int c) {
+        for (int i = slots.length - 1; i >= 0; i -= 1) {
+            c = slots[i].convertForward(c, offsets[i]);
+        }
+        for (int i = 1; i < slots.length; i += 1) {
+            c = slots[i].convertBackward(c, offsets[i]);
+        }
+        return c;
+    }
+
+    @Test
+    public void testScrambleWhileStepping() {
+        Machine M = standardMachine();
+        String[] names = { "B", "Beta", "III", "IV", "I" };
+        Rotor[] slots = new Rotor[names.length];
+        for (Rotor r : M.availableRotors()) {
+            for (int i = 0; i < names.length; i += 1) {
+                if (r.name().equals(names[i])) {
+                    slots[i] = r;
+                }
+            }
+        }
+        M.setRings("BCDE");
+        int[] offsets = new int[slots.length];
+        for (int n = 0; n < 2000; n += 1) {
+            if (n % 500 == 250) {
+                M.seek(1000 + n);
+            } else if (n == 1200) {
+                M.setRotors("QEVJ");
+            }
+            String position = M.positionAfter(0);
+            for (int i = 1; i < slots.length; i += 1) {
+                offsets[i] = UPPER.toInt(position.charAt(i - 1)) - i;
+            }
+            for (int c = 0; c < UPPER.size(); c += 1) {
+                assertEquals(scrambleSlowly(slots, offsets, c),
+                             M.scramble(c));
+            }
+            M.advance();
+        }
+    }
+
+    @Test
+    public void testKeyChanges() {
+        String[] settings = {
+            "B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)",
+            "B Beta III IV I AQRS",
+            "B Beta III IV I QQRS",
+            "B Beta III IV I QQRS BAAA",
+            "B Beta III IV I QQRS AAAA",
+            "B Beta III IV I AQRS BAAA",
+            "B Beta I II V AQRS BAAA",
+            "B Gamma I II V AQRS BAAA",
+            "C Gamma I II V AQRS BAAA",
+            "C Gamma I II V AQRS",
+            "C Gamma I II V AQRS",
+            "B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)",
+        };
+        Machine M = standardMachine();
+        for (String setting : settings) {
+            Machine fresh = navalMachine("I", "II", "III", "IV", "V");
+            Main.setUp(M, setting);
+            Main.setUp(fresh, setting);
+            assertEquals(fresh.convert(PLAIN), M.convert(PLAIN));
+        }
+        int[][] keys = { { 0, 3, 4, 5 }, { 7, 3, 4, 5 }, { 7, 3, 4, 5 } };
+        int[][] rings = { { 0, 0, 0, 0 }, { 0, 0, 0, 0 }, { 2, 0, 1, 0 } };
+        for (int k = 0; k < keys.length; k += 1) {
+            Machine fresh = standardMachine();
+            fresh.setRotors(keys[k]);
+            fresh.setRings(rings[k]);
+            M.setRotors(keys[k]);
+            M.setRings(rings[k]);
+            assertEquals(fresh.convert(PLAIN), M.convert(PLAIN));
+        }
+    }
+
+    @Test
+    public void testSharedRotors() {
+        Machine M1 = standardMachine();
+        Machine M2 = M1.copy();
+        M2.insertRotors(new String[] { "B", "Beta", "I", "II", "III" });
+        M2.setRotors("AAAA");
+        M2.setRings("BBBB");
+        M2.convert("HELLO WORLD");
+        assertEquals(CIPHER, M1.convert(PLAIN));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testConvertBadChar() {
+        standardMachine().convert("FROM his");
+    }
+
+    @Test
+    public void testSupplementaryAlphabet() {
+        String smile = "\uD83D\uDE00";
+        Alphabet alpha = new Alphabet("ABCDE" + smile);
+        Collection<Rotor> all = new ArrayList<>();
+        all.add(new Reflector("R", new Permutation("(AB) (CD) (E" + smile
+                                                   + ")", alpha)));
+        all.add(new MovingRotor("M1", new Permutation("(A" + smile
+                                                      + "CE) (BD)", alpha),
+                                "A"));
+        all.add(new MovingRotor("M2", new Permutation("(ABCDE" + smile
+                                                      + ")", alpha),
+                                smile));
+        Machine M = new Machine(alpha, 3, 2, all);
+        M.insertRotors(new String[] { "R", "M1", "M2" });
+        M.setRotors("A" + smile);
+        M.setPlugboard(new Permutation("(B" + smile + ")", alpha));
+        assertEquals("BA", M.positionAfter(1));
+        String plain = "A" + smile + "B CE" + smile + smile;
+        String cipher = M.convert(plain);
+        assertEquals(7, cipher.codePointCount(0, cipher.length()));
+        M.setRotors("A" + smile);
+        assertEquals(plain.replace(" ", ""), M.convert(cipher));
+    }
+}
@@ -1,15 +1,37 @@
 package enigma;
 
-import java.io.File;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
 
+import java.net.SocketAddress;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.NoSuchElementException;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static enigma.EnigmaException.*;
 
@@ -19,7 +41,55 @@ import static enigma.EnigmaException.*;
 public final class Main {
 
     /** Process a sequence of encryptions and decryptions, as
-     *  specified by ARGS, where 1 <= ARGS.length <= 3.
+     *  specified by ARGS, where 1 <= ARGS.length <= 3, not counting
+     *  leading options.  The option --parallel converts long
+     *  messages on all available cores.  The option --mmap, which
+     *  requires an input and an output file and an ASCII alphabet, maps
+     *  those files into memory instead of reading and writing them
+     *  through character streams, which avoids charset decoding and
+     *  encoding; the bytes are still widened to characters and processed
+     *  line by line.  The input and output may be the same file.  The
+     *  option --sections processes the sections introduced by settings
+     *  lines in parallel, each on its own machine.  The option
+     *  --pipeline reads the input and writes the output on threads of
+     *  their own, so that reading and writing overlap the conversion of
+     *  the messages (see PipelineReader and PipelineWriter).  The option
+     *  --crib=CRIB, instead of converting messages, searches for the
+     *  settings that could have encrypted the input, all of whose lines
+     *  are taken as one ciphertext, given that CRIB is part of its
+     *  plaintext, and prints them as settings lines.
+     *  The crib is placed at the start of the ciphertext, or N characters
+     *  in with the option --crib-offset=N.  The option
+     *  --hillclimb=SECONDS instead searches for about SECONDS seconds
+     *  for the settings of the ciphertext without a crib, reporting
+     *  progress on the standard error and printing the best settings
+     *  found.  It judges plugboards by the trigrams of the sample text
+     *  in the file named by the option --ngrams=FILE, if present.
+     *  The option --compile-config takes two arguments, the names of a
+     *  configuration file and an output file, and writes the
+     *  configuration to the output in a compiled form (see ConfigFile)
+     *  that may be given in place of the configuration file thereafter.
+     *  The option --compile-budget=BYTES runs the machine in compiled
+     *  mode, looking up the substitution at each rotor position in a
+     *  table computed when it is first reached, if the tables for all
+     *  positions fit in BYTES bytes (see Machine.setCompileBudget).  This
+     *  pays only when each key converts many more characters than its
+     *  rotors have positions.
+     *  The option --metrics=SECONDS registers the MBean described by
+     *  MetricsMXBean and prints a summary of the work done so far on the
+     *  standard error every SECONDS seconds and at the end.  The option
+     *  --daemon=ADDRESS takes the names of one or more configuration
+     *  files as its arguments, and instead of converting messages, loads
+     *  them and answers requests to convert messages at ADDRESS, a Unix
+     *  domain socket or a TCP port on the loopback interface, until the
+     *  process ends (see Daemon and Client).  The option
+     *  --bytes=SETTINGS converts the bytes of the input, which may hold
+     *  any data, with a machine whose alphabet has 256 symbols (see
+     *  ByteCatalog), set up by the settings line '*' SETTINGS, and writes
+     *  the resulting bytes to the output without grouping them.  The
+     *  option --byte-catalog=SEED takes the name of an output file as its
+     *  argument and writes there, as a compiled configuration, a machine
+     *  for such use whose rotors are generated from the number SEED.
      *  ARGS[0] is the name of a configuration file.
      *  ARGS[1] is optional; when present, it names an input file
      *  containing messages.  Otherwise, input comes from the standard
@@ -39,38 +109,265 @@ public final class Main {
 
     /** Check ARGS and open the necessary files (see comment on main). */
     Main(String[] args) {
+        int nopts = 0;
+        while (nopts < args.length && args[nopts].startsWith("--")) {
+            String opt = args[nopts];
+            if (opt.startsWith("--crib=")) {
+                _crib = opt.substring("--crib=".length());
+                nopts += 1;
+                continue;
+            } else if (opt.startsWith("--crib-offset=")) {
+                try {
+                    _cribOffset = Integer.parseInt(
+                        opt.substring("--crib-offset=".length()));
+                } catch (NumberFormatException excp) {
+                    throw error("bad crib offset");
+                }
+                nopts += 1;
+                continue;
+            } else if (opt.startsWith("--hillclimb=")) {
+                try {
+                    _climbMillis = Math.round(1000 * Double.parseDouble(
+                        opt.substring("--hillclimb=".length())));
+                } catch (NumberFormatException excp) {
+                    throw error("bad time limit");
+                }
+                nopts += 1;
+                continue;
+            } else if (opt.startsWith("--daemon=")) {
+                _daemonAddress =
+                    Daemon.address(opt.substring("--daemon=".length()));
+                nopts += 1;
+                continue;
+            } else if (opt.startsWith("--metrics=")) {
+                try {
+                    _metricsMillis = Math.round(1000 * Double.parseDouble(
+                        opt.substring("--metrics=".length())));
+                } catch (NumberFormatException excp) {
+                    throw error("bad metrics period");
+                }
+                if (_metricsMillis <= 0) {
+                    throw error("bad metrics period");
+                }
+                nopts += 1;
+                continue;
+            } else if (opt.startsWith("--bytes=")) {
+                _byteSettings = opt.substring("--bytes=".length());
+                nopts += 1;
+                continue;
+            } else if (opt.startsWith("--byte-catalog=")) {
+                try {
+                    _byteSeed = Long.parseLong(
+                        opt.substring("--byte-catalog=".length()));
+                } catch (NumberFormatException excp) {
+                    throw error("bad byte catalog seed");
+                }
+                _byteCatalog = true;
+                nopts += 1;
+                continue;
+            } else if (opt.startsWith("--compile-budget=")) {
+                try {
+                    _compileBudget = Long.parseLong(
+                        opt.substring("--compile-budget=".length()));
+                } catch (NumberFormatException excp) {
+                    throw error("bad compile budget");
+                }
+                if (_compileBudget < 0) {
+                    throw error("bad compile budget");
+                }
+                nopts += 1;
+                continue;
+            } else if (opt.startsWith("--ngrams=")) {
+                _ngramFile = opt.substring("--ngrams=".length());
+                nopts += 1;
+                continue;
+            }
+            switch (opt) {
+            case "--parallel":
+                _parallel = new ParallelConverter();
+                break;
+            case "--mmap":
+                _mapped = true;
+                break;
+            case "--pipeline":
+                _pipelined = true;
+                break;
+            case "--compile-config":
+                _compile = true;
+                break;
+            case "--sections":
+                _sectionPool = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors());
+                break;
+            default:
+                throw error("unknown option %s", opt);
+            }
+            nopts += 1;
+        }
+        args = Arrays.copyOfRange(args, nopts, args.length);
+        if (_daemonAddress != null) {
+            if (args.length < 1) {
+                throw error("--daemon requires at least one configuration "
+                            + "file");
+            }
+            _daemonConfigs = args;
+            return;
+        }
+        if (_byteCatalog) {
+            if (args.length != 1) {
+                throw error("--byte-catalog requires an output file");
+            }
+            _compileTarget = args[0];
+            return;
+        }
         if (args.length < 1 || args.length > 3) {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
 
-        _config = getInput(args[0]);
+        _configName = args[0];
+        if (!ConfigFile.isCompiled(_configName)) {
+            _config = getInput(_configName);
+        }
+
+        if (_compile) {
+            if (args.length != 2) {
+                throw error("--compile-config requires a configuration "
+                            + "file and an output file");
+            }
+            _compileTarget = args[1];
+            return;
+        }
+
+        if (_byteSettings != null) {
+            _byteInput = args.length > 1 ? args[1] : null;
+            _byteOutput = args.length > 2 ? args[2] : null;
+            return;
+        }
+
+        if (_mapped) {
+            if (args.length != 3) {
+                throw error("--mmap requires input and output files");
+            }
+            Writer output = getMappedWriter(args[1], args[2]);
+            _input = new LineReader(pipelined(getMappedReader(args[1])),
+                                    BUFFER_SIZE);
+            _output = pipelined(output);
+            _formatter = new GroupFormatter(_output, GROUP_SIZE, 0);
+            return;
+        }
 
         if (args.length > 1) {
-            _input = getInput(args[1]);
+            _input = new LineReader(pipelined(getReader(args[1])),
+                                    BUFFER_SIZE);
         } else {
-            _input = new Scanner(System.in);
+            _input = new LineReader(
+                pipelined(new InputStreamReader(System.in)), BUFFER_SIZE);
+            _flushLines = true;
         }
 
         if (args.length > 2) {
-            _output = getOutput(args[2]);
+            _output = pipelined(getOutput(args[2]));
         } else {
-            _output = System.out;
+            _output = pipelined(new BufferedWriter(
+                new OutputStreamWriter(System.out), BUFFER_SIZE));
+        }
+        _formatter = new GroupFormatter(_output, GROUP_SIZE, 0);
+    }
+
+    /** Return a Lexer reading the contents of the file named NAME. */
+    private Lexer getInput(String name) {
+        try {
+            return new Lexer(new String(Files.readAllBytes(Paths.get(name)),
+                                        Charset.defaultCharset()));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a Reader reading from the file named NAME. */
+    private Reader getReader(String name) {
+        try {
+            return new InputStreamReader(new FileInputStream(name));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
         }
     }
 
-    /** Return a Scanner reading from the file named NAME. */
-    private Scanner getInput(String name) {
+    /** Return a MappedReader reading from the file named NAME. */
+    private Reader getMappedReader(String name) {
         try {
-            return new Scanner(new File(name));
+            return new MappedReader(FileChannel.open(Paths.get(name),
+                                                     StandardOpenOption.READ));
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a MappedWriter writing to the file named NAME, whose
+     *  input is the file named INPUT.  If they are the same file, the
+     *  output is written to a temporary file in the same directory, which
+     *  replaces the input when the writer is closed. */
+    private Writer getMappedWriter(String input, String name) {
+        Path path = Paths.get(name);
         try {
-            return new PrintStream(new File(name));
+            if (Files.exists(path) && Files.exists(Paths.get(input))
+                && Files.isSameFile(Paths.get(input), path)) {
+                Path dir = path.toAbsolutePath().getParent();
+                Path temp = Files.createTempFile(dir, ".enigma", ".tmp");
+                temp.toFile().deleteOnExit();
+                return new MappedWriter(FileChannel.open(
+                    temp, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE), temp, path);
+            }
+            return new MappedWriter(FileChannel.open(
+                path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return IN, read ahead on a thread of its own if _pipelined. */
+    private Reader pipelined(Reader in) {
+        if (!_pipelined) {
+            return in;
+        }
+        return new PipelineReader(in, BUFFER_SIZE, PIPELINE_BLOCKS);
+    }
+
+    /** Return OUT, written on a thread of its own if _pipelined. */
+    private Writer pipelined(Writer out) {
+        if (!_pipelined) {
+            return out;
+        }
+        return new PipelineWriter(out, BUFFER_SIZE, PIPELINE_BLOCKS);
+    }
+
+    /** Return a buffered Writer writing to the file named NAME. */
+    private Writer getOutput(String name) {
+        try {
+            return new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(name)), BUFFER_SIZE);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a stream reading the file named NAME, or the standard
+     *  input if NAME is null. */
+    private InputStream getByteInput(String name) {
+        try {
+            return name == null ? System.in : new FileInputStream(name);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a stream writing the file named NAME, or the standard
+     *  output if NAME is null. */
+    private OutputStream getByteOutput(String name) {
+        try {
+            return name == null ? System.out : new FileOutputStream(name);
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
@@ -78,34 +375,405 @@ public final class Main {
 
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
-     *  results to _output. */
+     *  results to _output, and report on the work done as requested. */
     private void process() {
+        if (_metricsMillis > 0) {
+            _metrics.register();
+            _metrics.startReports(System.err, _metricsMillis);
+        }
+        try {
+            processInput();
+        } finally {
+            _metrics.stopReports();
+        }
+    }
+
+    /** Configure an Enigma machine from the contents of configuration
+     *  file _config and apply it to the messages in _input, sending the
+     *  results to _output. */
+    private void processInput() {
+        if (_daemonAddress != null) {
+            serve();
+            return;
+        }
+        if (_byteCatalog) {
+            ConfigFile.write(ByteCatalog.generate(_byteSeed,
+                                                  ByteCatalog.DEFAULT_ROTORS,
+                                                  ByteCatalog.DEFAULT_PAWLS,
+                                                  ByteCatalog.DEFAULT_MOVING),
+                             _compileTarget);
+            return;
+        }
+        _metrics.configLoading();
         Machine machine = readConfig();
-        if (!_input.hasNext("\\*")) {
-            throw error("bad input");
+        _metrics.configLoaded(_configName, machine);
+        if (_compile) {
+            ConfigFile.write(machine, _compileTarget);
+            return;
         }
-        while (_input.hasNextLine()) {
-            while (_input.findInLine("\\*") == null) {
-                _output.println();
-                _input.nextLine();
+        machine.setCompileBudget(_compileBudget);
+        if (_byteSettings != null) {
+            convertBytes(machine);
+            return;
+        }
+        if (_crib != null || _climbMillis >= 0) {
+            try {
+                if (_crib != null) {
+                    search(machine);
+                } else {
+                    climb(machine);
+                }
+            } finally {
+                flush();
+                if (_mapped) {
+                    close();
+                }
             }
-            String settings =  _input.nextLine();
-            Pattern p = Pattern.compile("([^\\s]*[\\s])*[^\\s]*");
-            if (!checkMatch(settings, p)) {
+            return;
+        }
+        _sectionMachine = ThreadLocal.withInitial(machine::copy);
+        _sectionTracker = ThreadLocal.withInitial(_metrics::tracker);
+        if (_mapped) {
+            for (int i = 0; i < _alphabet.size(); i += 1) {
+                if (_alphabet.codePoint(i) >= 0x80) {
+                    throw error("--mmap requires an ASCII alphabet");
+                }
+            }
+        }
+        if (_parallel != null && _alphabet.supplementary()) {
+            throw error("--parallel requires an alphabet without "
+                        + "supplementary characters");
+        }
+        try {
+            boolean configured = false;
+            while (_input.hasNextLine()) {
+                int start = readLineHead();
+                if (start == -1) {
+                    _blankLines.add(lineText(0));
+                } else if (_line[start] == '*'
+                           && (start + 1 == _lineLen
+                               || Character.isWhitespace(_line[start + 1]))) {
+                    printParallel(machine);
+                    finishSection(machine);
+                    endSection();
+                    String settings = lineText(start + 1);
+                    if (_sectionPool != null) {
+                        _section = new Section(settings);
+                    } else {
+                        _tracker.start(settings, machine);
+                        _tracking = true;
+                        setUp(machine, settings);
+                    }
+                    configured = true;
+                } else if (!configured) {
+                    throw error("bad input");
+                } else {
+                    convertBlankLines(machine);
+                    convertLine(machine);
+                }
+            }
+            if (!configured) {
                 throw error("bad input");
             }
-            setUp(machine, settings);
-            while (_input.hasNextLine() && !_input.hasNext("\\*")) {
-                String msg = _input.nextLine();
-                String encoded = machine.convert(msg);
-                printMessageLine(encoded);
+            convertBlankLines(machine);
+            printParallel(machine);
+            finishSection(machine);
+            endSection();
+            printSections(0);
+        } finally {
+            if (_sectionPool != null) {
+                _sectionPool.shutdownNow();
+            }
+            flush();
+            if (_mapped) {
+                close();
+            }
+        }
+    }
+
+    /** Convert the bytes of the file named _byteInput, or of the
+     *  standard input if it is null, with MACHINE set up by the settings
+     *  _byteSettings, writing the results to the file named _byteOutput,
+     *  or to the standard output if it is null. */
+    private void convertBytes(Machine machine) {
+        setUp(machine, _byteSettings);
+        _tracker.start(_byteSettings, machine);
+        byte[] buffer = new byte[MachineOutputStream.BLOCK];
+        try (InputStream in = new MachineInputStream(
+                 getByteInput(_byteInput), machine);
+             OutputStream out = getByteOutput(_byteOutput)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+                _tracker.count(n);
+            }
+        } catch (IOException excp) {
+            throw error("could not convert bytes");
+        }
+        _tracker.finish(machine);
+    }
+
+    /** Load the configurations named by _daemonConfigs and answer requests
+     *  to convert messages with them at _daemonAddress (see Daemon) until
+     *  the process ends. */
+    private void serve() {
+        LinkedHashMap<String, Machine> configs =
+            new LinkedHashMap<String, Machine>();
+        for (String name : _daemonConfigs) {
+            _configName = name;
+            _config = ConfigFile.isCompiled(name) ? null : getInput(name);
+            _metrics.configLoading();
+            Machine machine = readConfig();
+            _metrics.configLoaded(name, machine);
+            configs.put(name, machine);
+        }
+        Daemon daemon = new Daemon(configs);
+        daemon.warmUp(WARM_UP_CHARS);
+        daemon.serve(_daemonAddress);
+    }
+
+    /** Print the settings, among those available to M, at which _crib
+     *  produces a Bombe stop against the ciphertext in _input. */
+    private void search(Machine M) {
+        for (String settings : new Bombe(M).search(readCiphertext(),
+                                                   _crib, _cribOffset)) {
+            printSettings(settings);
+        }
+    }
+
+    /** Print the best settings, among those available to M, found by
+     *  hill climbing on the ciphertext in _input for _climbMillis
+     *  milliseconds. */
+    private void climb(Machine M) {
+        Ngrams ngrams = null;
+        if (_ngramFile != null) {
+            try {
+                ngrams = new Ngrams(_alphabet,
+                                    Files.readString(Paths.get(_ngramFile)),
+                                    NGRAM_LENGTH);
+            } catch (IOException excp) {
+                throw error("could not open %s", _ngramFile);
+            }
+        }
+        HillClimber climber = new HillClimber(M, ngrams);
+        climber.setProgress(System.err);
+        printSettings(climber.search(readCiphertext(), _climbMillis,
+                                     Long.MAX_VALUE, System.nanoTime()));
+    }
+
+    /** Return all the lines of _input, concatenated. */
+    private String readCiphertext() {
+        StringBuilder ciphertext = new StringBuilder();
+        while (_input.hasNextLine()) {
+            ciphertext.append(_input.readLine());
+        }
+        return ciphertext.toString();
+    }
+
+    /** Print SETTINGS, the text of a settings line after its '*', as a
+     *  settings line. */
+    private void printSettings(String settings) {
+        try {
+            _output.write("* " + settings);
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+        println();
+    }
+
+    /** Record in _metrics the end of the section being converted with M
+     *  on this thread, if any. */
+    private void finishSection(Machine M) {
+        if (_tracking) {
+            _tracker.finish(M);
+            _tracking = false;
+        }
+    }
+
+    /** End the section being collected for parallel processing, if any,
+     *  giving it the blank lines in _blankLines, which are printed as
+     *  empty lines.  Without such a section, print those lines now. */
+    private void endSection() {
+        if (_section != null) {
+            _section._blankLines = _blankLines.size();
+            printSections(SECTIONS_IN_FLIGHT - 1);
+            _inFlight.add(_sectionPool.submit(_section));
+            _section = null;
+        } else {
+            for (int i = 0; i < _blankLines.size(); i += 1) {
+                println();
+            }
+        }
+        _blankLines.clear();
+    }
+
+    /** Print the results of the oldest sections being processed in
+     *  parallel, in order, until at most MAXINFLIGHT remain. */
+    private void printSections(int maxInFlight) {
+        while (_inFlight.size() > maxInFlight) {
+            Section section;
+            try {
+                section = _inFlight.remove().get();
+            } catch (InterruptedException excp) {
+                throw error("interrupted");
+            } catch (ExecutionException excp) {
+                throw new IllegalStateException(excp.getCause());
+            }
+            try {
+                _output.append(section._output.getBuffer());
+            } catch (IOException excp) {
+                throw error("could not write output");
+            }
+            if (section._error != null) {
+                throw section._error;
             }
         }
     }
 
+    /** Read the beginning of the next line of _input into _line, setting
+     *  _lineLen and _lineEnded, and return the index in _line of its
+     *  first non-whitespace character, or -1 if the line is blank. The
+     *  beginning read includes at least the first non-whitespace character
+     *  and the one after it, when these exist. */
+    private int readLineHead() {
+        _lineLen = 0;
+        _lineEnded = false;
+        int start = -1;
+        int scanned = 0;
+        while (true) {
+            readLineMore();
+            while (start == -1 && scanned < _lineLen) {
+                if (!Character.isWhitespace(_line[scanned])) {
+                    start = scanned;
+                }
+                scanned += 1;
+            }
+            if (_lineEnded || (start != -1 && start + 1 < _lineLen)) {
+                return start;
+            }
+            _line = Arrays.copyOf(_line, 2 * _line.length);
+            _converted = new char[_line.length];
+        }
+    }
+
+    /** Read more of the current line into _line after the _lineLen
+     *  characters already there, until _line is full or the line ends. */
+    private void readLineMore() {
+        while (!_lineEnded && _lineLen < _line.length) {
+            int n = _input.read(_line, _lineLen, _line.length - _lineLen);
+            if (n == -1) {
+                _lineEnded = true;
+            } else {
+                _lineLen += n;
+            }
+        }
+    }
+
+    /** Return the text of the current line from index START of _line
+     *  through its end, consuming the rest of the line. */
+    private String lineText(int start) {
+        String head = new String(_line, start, _lineLen - start);
+        return _lineEnded ? head : head + _input.readLine();
+    }
+
+    /** Convert the message line whose beginning is in _line with M, and
+     *  print it, reading the rest of the line piece by piece. */
+    private void convertLine(Machine M) {
+        if (_section != null) {
+            _section._lines.add(lineText(0));
+            return;
+        }
+        if (_parallel != null) {
+            addParallel(M, lineText(0));
+            return;
+        }
+        if (_alphabet.supplementary()) {
+            printMessageLine(M.convert(lineText(0)));
+            return;
+        }
+        int offset = 0;
+        while (true) {
+            int n;
+            try {
+                n = M.convert(_line, 0, _lineLen, _converted, 0);
+            } catch (EnigmaException excp) {
+                throw notInAlphabet(M, offset);
+            }
+            _tracker.count(n);
+            _formatter.write(_converted, 0, n);
+            if (_lineEnded) {
+                break;
+            }
+            offset += _lineLen;
+            _lineLen = 0;
+            readLineMore();
+        }
+        endMessageLine();
+    }
+
+    /** Return the error reported by M.convert for the first character
+     *  of _line not in M's alphabet, where _line[0] is at position
+     *  OFFSET in its line. */
+    private EnigmaException notInAlphabet(Machine M, int offset) {
+        for (int i = 0; i < _lineLen; i += 1) {
+            char c = _line[i];
+            if (c != ' ' && !M.alphabet().contains(c)) {
+                return error("character %c at position %d not in alphabet",
+                             c, offset + i);
+            }
+        }
+        return error("bad input");
+    }
+
+    /** Convert and print the blank lines in _blankLines as messages
+     *  for M. */
+    private void convertBlankLines(Machine M) {
+        for (String msg : _blankLines) {
+            if (_section != null) {
+                _section._lines.add(msg);
+            } else if (_parallel != null) {
+                addParallel(M, msg);
+            } else {
+                printMessageLine(M.convert(msg));
+            }
+        }
+        _blankLines.clear();
+    }
+
+    /** Queue message line MSG for parallel conversion with M, converting
+     *  the queued lines once there are enough of them. */
+    private void addParallel(Machine M, String msg) {
+        _parallelLines.add(msg);
+        _parallelChars += msg.length();
+        if (_parallelChars >= PARALLEL_BATCH) {
+            printParallel(M);
+        }
+    }
+
+    /** Convert the message lines queued by addParallel with M on all
+     *  available cores, and print them as for printMessageLine. */
+    private void printParallel(Machine M) {
+        if (_parallelLines.isEmpty()) {
+            return;
+        }
+        String[] encoded =
+            _parallel.convert(M, _parallelLines.toArray(new String[0]));
+        for (String msg : encoded) {
+            printMessageLine(msg);
+        }
+        _parallelLines.clear();
+        _parallelChars = 0;
+    }
+
     /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
+     *  file _config, or from the compiled configuration named by
+     *  _configName if _config is null. */
     private Machine readConfig() {
+        if (_config == null) {
+            Machine machine = ConfigFile.read(_configName);
+            _alphabet = machine.alphabet();
+            return machine;
+        }
         try {
             _alphabet = new Alphabet(_config.nextLine());
             int numRotors = _config.nextInt();
@@ -128,7 +796,7 @@ public final class Main {
             String name = _config.next();
             String description = _config.next();
             String cycles = " ";
-            while (_config.hasNext("[(][^\\s]+[)]")) {
+            while (_config.hasNextCycle()) {
                 cycles += _config.next() + " ";
             }
             Permutation perm = new Permutation(cycles, _alphabet);
@@ -146,71 +814,305 @@ public final class Main {
         }
     }
 
-    /** Set M according to the specification given on SETTINGS,
-     *  which must have the format specified in the assignment. */
-    private void setUp(Machine M, String settings) {
-        int posPlugboard = settings.indexOf('(');
-        if (posPlugboard != -1) {
-            String pCycles = settings.substring(posPlugboard);
-            Permutation plugboard = new Permutation(pCycles, _alphabet);
-            M.setPlugboard(plugboard);
-            settings = settings.substring(0, posPlugboard - 1);
+    /** Set M according to the specification given on SETTINGS, the text
+     *  of a settings line after its initial '*', which must have the
+     *  format specified in the assignment. */
+    static void setUp(Machine M, String settings) {
+        int end = settings.indexOf('(');
+        if (end != -1) {
+            M.setPlugboard(new Permutation(settings.substring(end),
+                                           M.alphabet()));
+            end = Math.max(end - 1, 0);
         } else {
-            Permutation plugboard = new Permutation("", _alphabet);
-            M.setPlugboard(plugboard);
+            M.setPlugboard(new Permutation("", M.alphabet()));
+            end = settings.length();
         }
-        ArrayList<String> rotorsNsettings = new ArrayList<String>();
-        Scanner sc = new Scanner(settings);
-        while (sc.hasNext()) {
-            rotorsNsettings.add(sc.next());
+        String[] tokens = new String[M.numRotors() + 2];
+        int count = 0;
+        Lexer lexer = new Lexer(settings.substring(0, end));
+        while (lexer.hasNext()) {
+            if (count == tokens.length) {
+                throw error("bad input");
+            }
+            tokens[count] = lexer.next();
+            count += 1;
         }
-        String[] rotors = new String[M.numRotors()];
-        if (rotorsNsettings.size() < M.numRotors() + 1
-                || rotorsNsettings.size() > M.numRotors() + 2) {
+        if (count < M.numRotors() + 1) {
             throw error("bad input");
         }
-        for (int i = 0; i < rotors.length; i += 1) {
-            rotors[i] = rotorsNsettings.get(i);
-        }
-        M.insertRotors(rotors);
-        M.setRotors(rotorsNsettings.get(M.numRotors()));
-        if (rotorsNsettings.size() == M.numRotors() + 2) {
-            M.setRings(rotorsNsettings.get(M.numRotors() + 1));
+        M.insertRotors(Arrays.copyOf(tokens, M.numRotors()));
+        M.setRotors(tokens[M.numRotors()]);
+        if (count == M.numRotors() + 2) {
+            M.setRings(tokens[M.numRotors() + 1]);
         }
     }
 
     /** Print MSG in groups of five (except that the last group may
      *  have fewer letters). */
     private void printMessageLine(String msg) {
-        int count = 0;
-        for (int i = 0; i < msg.length(); i += 1) {
-            _output.print(msg.charAt(i));
-            count += 1;
-            if (count == 5) {
-                _output.print(" ");
-                count = 0;
-            }
+        _tracker.count(writeMessage(_formatter, _alphabet, msg));
+        endMessageLine();
+    }
+
+    /** Print MSG, a converted message over ALPHABET, with FORMATTER, and
+     *  return the number of its characters. */
+    static int writeMessage(GroupFormatter formatter,
+                                    Alphabet alphabet, String msg) {
+        if (alphabet.supplementary()) {
+            formatter.writeCodePoints(msg);
+            return msg.codePointCount(0, msg.length());
         }
-        _output.println();
+        formatter.write(msg);
+        return msg.length();
     }
 
-    /** Returns true if the string s matches pattern p.
-     * @param s String to check.
-     * @param p Patter to check against. */
-    private static boolean checkMatch(String s, Pattern p) {
-        Matcher mat = p.matcher(s);
-        return mat.matches();
+    /** End the current message line. */
+    private void endMessageLine() {
+        _formatter.endLine();
+        if (_flushLines) {
+            flush();
+        }
     }
 
+    /** Print a line separator. */
+    private void println() {
+        try {
+            _output.write(System.lineSeparator());
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+    }
+
+    /** Close _output. */
+    private void close() {
+        try {
+            _output.close();
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+    }
+
+    /** Flush _output. */
+    private void flush() {
+        try {
+            _output.flush();
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+    }
+
+    /** A section of the input, consisting of a settings line and the
+     *  message lines that follow it, processed on its own machine in
+     *  _sectionPool. */
+    private class Section implements Callable<Section> {
+
+        /** A section whose settings line is '*' followed by SETTINGS. */
+        Section(String settings) {
+            _settings = settings;
+        }
+
+        /** Converts my message lines with the machine of the current
+         *  thread, collecting the printed results in _output and
+         *  recording any error in _error. Returns this section. */
+        @Override
+        public Section call() {
+            Machine M = _sectionMachine.get();
+            Metrics.Tracker tracker = _sectionTracker.get();
+            try {
+                tracker.start(_settings, M);
+                setUp(M, _settings);
+                GroupFormatter formatter =
+                    new GroupFormatter(_output, GROUP_SIZE, 0);
+                for (String msg : _lines) {
+                    tracker.count(writeMessage(formatter, M.alphabet(),
+                                               M.convert(msg)));
+                    formatter.endLine();
+                }
+            } catch (EnigmaException excp) {
+                _error = excp;
+                return this;
+            }
+            tracker.finish(M);
+            for (int i = 0; i < _blankLines; i += 1) {
+                _output.write(System.lineSeparator());
+            }
+            return this;
+        }
+
+        /** Text of my settings line after the '*'. */
+        private final String _settings;
+
+        /** My message lines. */
+        private final ArrayList<String> _lines = new ArrayList<String>();
+
+        /** Number of empty lines printed after my messages. */
+        private int _blankLines;
+
+        /** My printed results. */
+        private final StringWriter _output = new StringWriter();
+
+        /** The error that stopped my processing, or null. */
+        private EnigmaException _error;
+    }
+
+    /** Maximum number of sections processed in parallel or waiting to be
+     *  printed. */
+    private static final int SECTIONS_IN_FLIGHT =
+        4 * Runtime.getRuntime().availableProcessors();
+
+    /** Pool processing sections in parallel, or null if sections are
+     *  processed one at a time. */
+    private ExecutorService _sectionPool;
+
+    /** The section being collected from the input, if any. */
+    private Section _section;
+
+    /** Sections submitted to _sectionPool but not yet printed, oldest
+     *  first. */
+    private ArrayDeque<Future<Section>> _inFlight =
+        new ArrayDeque<Future<Section>>();
+
+    /** The machine used by each thread of _sectionPool. */
+    private ThreadLocal<Machine> _sectionMachine;
+
+    /** The tracker of the sections processed by each thread of
+     *  _sectionPool. */
+    private ThreadLocal<Metrics.Tracker> _sectionTracker;
+
+    /** Number of message characters collected before they are converted
+     *  in parallel. */
+    private static final int PARALLEL_BATCH = 1 << 23;
+
+    /** Converter for long messages, or null if messages are converted
+     *  sequentially. */
+    private ParallelConverter _parallel;
+
+    /** Known plaintext for a Bombe search of the input, or null if
+     *  messages are to be converted. */
+    private String _crib;
+
+    /** Offset of _crib in the ciphertext. */
+    private int _cribOffset;
+
+    /** Time allowed a hill-climbing search of the input, in milliseconds,
+     *  or -1 if messages are to be converted. */
+    private long _climbMillis = -1;
+
+    /** File of sample text for n-gram statistics, or null. */
+    private String _ngramFile;
+
+    /** Address at which to serve requests, or null if messages are to
+     *  be converted from _input. */
+    private SocketAddress _daemonAddress;
+
+    /** Names of the configuration files served at _daemonAddress. */
+    private String[] _daemonConfigs;
+
+    /** Settings line, less its '*', of the machine converting bytes, or
+     *  null if messages are converted as text. */
+    private String _byteSettings;
+
+    /** Names of the files of bytes to convert and of the results, or null
+     *  for the standard input and output. */
+    private String _byteInput, _byteOutput;
+
+    /** True iff a byte catalog is to be generated and written to
+     *  _compileTarget. */
+    private boolean _byteCatalog;
+
+    /** Seed of the byte catalog generated. */
+    private long _byteSeed;
+
+    /** Number of characters converted with each configuration served,
+     *  before any requests are answered. */
+    private static final long WARM_UP_CHARS = 1 << 22;
+
+    /** Counts and timings of the work done. */
+    private final Metrics _metrics = new Metrics();
+
+    /** Tracker of the sections converted without _sectionPool. */
+    private final Metrics.Tracker _tracker = _metrics.tracker();
+
+    /** True iff a section is being tracked by _tracker. */
+    private boolean _tracking;
+
+    /** Milliseconds between summaries of _metrics, or 0 if they are not
+     *  printed. */
+    private long _metricsMillis;
+
+    /** Length of the n-grams of hill-climbing searches. */
+    private static final int NGRAM_LENGTH = 3;
+
     /** Alphabet used in this machine. */
     private Alphabet _alphabet;
 
+    /** Number of characters in each group of a printed message. */
+    static final int GROUP_SIZE = 5;
+
+    /** Size of input and output buffers, in chars. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
     /** Source of input messages. */
-    private Scanner _input;
+    private LineReader _input;
 
     /** Source of machine configuration. */
-    private Scanner _config;
+    private Lexer _config;
+
+    /** Name of the configuration file. */
+    private String _configName;
+
+    /** True iff the configuration is to be compiled rather than used. */
+    private boolean _compile;
+
+    /** Name of the file to which a compiled configuration is written. */
+    private String _compileTarget;
+
+    /** Most bytes that the tables of compiled mode may take, or 0 if
+     *  compiled mode is not used. */
+    private long _compileBudget;
 
     /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    private Writer _output;
+
+    /** True iff input and output files are mapped into memory. */
+    private boolean _mapped;
+
+    /** True iff the input is read and the output written on threads of
+     *  their own. */
+    private boolean _pipelined;
+
+    /** Number of blocks of BUFFER_SIZE characters in each pipeline
+     *  stage's pool. */
+    private static final int PIPELINE_BLOCKS = 8;
+
+    /** True iff _output is flushed after each message line, as when
+     *  input is interactive. */
+    private boolean _flushLines;
+
+    /** Holds the part of the current input line being processed. */
+    private char[] _line = new char[BUFFER_SIZE];
+
+    /** Number of valid characters in _line. */
+    private int _lineLen;
+
+    /** True iff the current line ends with the last character in _line. */
+    private boolean _lineEnded;
+
+    /** Holds converted characters waiting to be printed.  It is at least
+     *  as long as _line. */
+    private char[] _converted = new char[BUFFER_SIZE];
+
+    /** Prints message lines to _output. */
+    private GroupFormatter _formatter;
+
+    /** Blank lines read since the last message or settings line.  They
+     *  are printed as empty lines if a settings line follows, and are
+     *  converted as messages otherwise. */
+    private ArrayList<String> _blankLines = new ArrayList<String>();
+
+    /** Message lines queued for parallel conversion. */
+    private ArrayList<String> _parallelLines = new ArrayList<String>();
+
+    /** Total length of the lines in _parallelLines. */
+    private int _parallelChars;
 }
@@ -0,0 +1,67 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** A Reader of a file of single-byte characters that maps the file into
+ *  memory a window at a time, so that files of any size can be read
+ *  without charset decoding.  Bytes 0-127 are read as the corresponding
+ *  ASCII characters; other bytes are read as the Unicode replacement
+ *  character.  The bytes are widened into the reader's buffer like any
+ *  other characters, so that what is read is parsed and converted as
+ *  the input of Main always is; only the decoding of a charset is
+ *  saved.
+ *  @author Ishaan Mauli Mishra
+ */
+class MappedReader extends Reader {
+
+    /** A reader of the contents of CHANNEL, which must be open for
+     *  reading. */
+    MappedReader(FileChannel channel) {
+        _channel = channel;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (_window == null || !_window.hasRemaining()) {
+            long size = _channel.size();
+            if (_next >= size) {
+                return -1;
+            }
+            long n = Math.min(WINDOW, size - _next);
+            _window = _channel.map(FileChannel.MapMode.READ_ONLY, _next, n);
+            _next += n;
+        }
+        int n = Math.min(len, Math.min(_window.remaining(), _bytes.length));
+        _window.get(_bytes, 0, n);
+        for (int i = 0; i < n; i += 1) {
+            byte b = _bytes[i];
+            cbuf[off + i] = b >= 0 ? (char) b : '\uFFFD';
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _window = null;
+        _channel.close();
+    }
+
+    /** Size of the part of the file mapped at once. */
+    static final long WINDOW = 1L << 28;
+
+    /** The file I read. */
+    private final FileChannel _channel;
+
+    /** The mapped part of the file being read, or null before the first
+     *  read. */
+    private MappedByteBuffer _window;
+
+    /** Position in the file just after the mapped window. */
+    private long _next;
+
+    /** Bytes being converted to chars. */
+    private final byte[] _bytes = new byte[1 << 16];
+}
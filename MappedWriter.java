@@ -0,0 +1,101 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/** A Writer of a file of single-byte characters that maps the file into
+ *  memory a window at a time, so that files of any size can be written
+ *  without charset encoding.  Characters 0-127 are written as the
+ *  corresponding bytes; others are written as '?'.  The file is cut to
+ *  the length written when the writer is closed.  To rewrite a file in
+ *  place, a writer may write a temporary file and rename it over the
+ *  original when it is closed, so that the original may be read until
+ *  then.
+ *  @author Ishaan Mauli Mishra
+ */
+class MappedWriter extends Writer {
+
+    /** A writer replacing the contents of CHANNEL, which must be open for
+     *  reading and writing. */
+    MappedWriter(FileChannel channel) throws IOException {
+        this(channel, null, null);
+    }
+
+    /** A writer replacing the contents of CHANNEL, which must be open for
+     *  reading and writing.  If TARGET is not null, CHANNEL is the file
+     *  TEMP, which replaces TARGET when I am closed. */
+    MappedWriter(FileChannel channel, Path temp, Path target)
+        throws IOException {
+        _channel = channel;
+        _temp = temp;
+        _target = target;
+        _channel.truncate(0);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        while (len > 0) {
+            if (_window == null || !_window.hasRemaining()) {
+                _window = _channel.map(FileChannel.MapMode.READ_WRITE,
+                                       _next, MappedReader.WINDOW);
+                _next += MappedReader.WINDOW;
+            }
+            int n = Math.min(len, Math.min(_window.remaining(),
+                                           _bytes.length));
+            for (int i = 0; i < n; i += 1) {
+                char c = cbuf[off + i];
+                _bytes[i] = c < 0x80 ? (byte) c : (byte) '?';
+            }
+            _window.put(_bytes, 0, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!_channel.isOpen()) {
+            return;
+        }
+        long written = _next;
+        if (_window != null) {
+            written -= _window.remaining();
+            _window.force();
+        }
+        _window = null;
+        _channel.truncate(written);
+        _channel.close();
+        if (_target != null) {
+            Files.move(_temp, _target, StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** The file I write. */
+    private final FileChannel _channel;
+
+    /** The file written by _channel if it is to replace _target. */
+    private final Path _temp;
+
+    /** The file to be replaced on closing, or null. */
+    private final Path _target;
+
+    /** The mapped part of the file being written, or null before the
+     *  first write. */
+    private MappedByteBuffer _window;
+
+    /** Position in the file just after the mapped window. */
+    private long _next;
+
+    /** Chars converted to bytes. */
+    private final byte[] _bytes = new byte[1 << 16];
+}
@@ -0,0 +1,359 @@
+package enigma;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import static enigma.EnigmaException.*;
+
+/** Counters and timings of the work done in converting messages: the
+ *  characters converted, the sections processed and their latencies,
+ *  the time taken to load the configuration, and the rotor movements
+ *  made.  They are available through JMX (see MetricsMXBean), as the JFR
+ *  events enigma.ConfigLoad and enigma.Section, and as summaries printed
+ *  periodically.  Counting is thread-safe and costs a few additions per
+ *  message line and section.  It allocates nothing, and loads no JFR
+ *  classes, unless the JVM's flight recorder is running, when it makes
+ *  the events that recordings ask for.
+ *  @author Ishaan Mauli Mishra
+ */
+class Metrics implements MetricsMXBean {
+
+    /** Metrics of processing that starts now. */
+    Metrics() {
+        _start = System.nanoTime();
+    }
+
+    /** Note that loading a configuration starts now. */
+    void configLoading() {
+        _configStart = System.nanoTime();
+        if (FlightRecorder.isInitialized()) {
+            _configEvent = new ConfigLoadEvent();
+            _configEvent.begin();
+        }
+    }
+
+    /** Note that the configuration named NAME, giving the machine M, has
+     *  been loaded since the last call to configLoading. */
+    void configLoaded(String name, Machine M) {
+        _configNanos = System.nanoTime() - _configStart;
+        if (_configEvent != null) {
+            _configEvent.end();
+            _configEvent.configuration = name;
+            _configEvent.rotors = M.availableRotors().size();
+            _configEvent.commit();
+            _configEvent = null;
+        }
+    }
+
+    /** Returns a new Tracker of sections, reporting to me. */
+    Tracker tracker() {
+        return new Tracker();
+    }
+
+    /** Times and counts the sections processed by one thread at a time,
+     *  one section after another, adding the results to my totals. */
+    class Tracker {
+
+        /** Note that a section with settings line '*' followed by
+         *  SETTINGS, converted with M, starts now. */
+        void start(String settings, Machine M) {
+            _sectionStart = System.nanoTime();
+            _settings = settings;
+            _chars = 0;
+            _steps = M.rotorSteps();
+            _doubleSteps = M.doubleSteps();
+            if (FlightRecorder.isInitialized()
+                && SectionEvent.TYPE.isEnabled()) {
+                _event = new SectionEvent();
+                _event.begin();
+            }
+        }
+
+        /** Note the conversion of N characters in the current
+         *  section. */
+        void count(long n) {
+            _chars += n;
+            _characters.add(n);
+        }
+
+        /** Note that the current section, converted with M, ends now. */
+        void finish(Machine M) {
+            long nanos = System.nanoTime() - _sectionStart;
+            long steps = M.rotorSteps() - _steps;
+            long doubleSteps = M.doubleSteps() - _doubleSteps;
+            _sections.increment();
+            _sectionNanos.add(nanos);
+            _latencies.incrementAndGet(bucket(nanos));
+            _maxSectionNanos.accumulateAndGet(nanos, Math::max);
+            _rotorSteps.add(steps);
+            _doubleStepsTotal.add(doubleSteps);
+            if (_event != null) {
+                _event.end();
+                _event.settings = _settings;
+                _event.characters = _chars;
+                _event.rotorSteps = steps;
+                _event.doubleSteps = doubleSteps;
+                _event.commit();
+                _event = null;
+            }
+        }
+
+        /** Value of System.nanoTime() when the current section
+         *  started. */
+        private long _sectionStart;
+
+        /** Text of the current section's settings line after the '*'. */
+        private String _settings;
+
+        /** Characters converted in the current section. */
+        private long _chars;
+
+        /** The counts of the machine's rotor movements and double steps
+         *  when the current section started. */
+        private long _steps, _doubleSteps;
+
+        /** The JFR event recording the current section, or null if none
+         *  is wanted. */
+        private SectionEvent _event;
+    }
+
+    /** Register me with the platform MBean server under the name
+     *  enigma:type=Metrics, replacing any MBean of that name. */
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(NAME)) {
+                server.unregisterMBean(NAME);
+            }
+            server.registerMBean(this, NAME);
+        } catch (JMException excp) {
+            throw error("could not register metrics");
+        }
+    }
+
+    /** Print summary() to OUT every PERIOD milliseconds until
+     *  stopReports is called. */
+    void startReports(PrintStream out, long period) {
+        _reportOut = out;
+        _reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "enigma-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        _reporter.scheduleAtFixedRate(() -> out.println(summary()),
+                                      period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stop the reports begun by startReports, if any, printing a last
+     *  summary. */
+    void stopReports() {
+        if (_reporter != null) {
+            _reporter.shutdownNow();
+            _reporter = null;
+            _reportOut.println(summary());
+        }
+    }
+
+    /** Returns a one-line summary of my counts. */
+    String summary() {
+        return String.format("enigma: %d chars (%.0f/s), %d sections "
+                             + "(median %.3f ms, p99 %.3f ms, max %.3f ms),"
+                             + " config %.3f ms, %d rotor steps "
+                             + "(%d double)",
+                             getCharacters(), getCharactersPerSecond(),
+                             getSections(), getMedianSectionMillis(),
+                             getP99SectionMillis(), getMaxSectionMillis(),
+                             getConfigLoadMillis(), getRotorSteps(),
+                             getDoubleSteps());
+    }
+
+    @Override
+    public long getCharacters() {
+        return _characters.sum();
+    }
+
+    @Override
+    public double getCharactersPerSecond() {
+        long nanos = System.nanoTime() - _start;
+        return nanos == 0 ? 0 : getCharacters() * 1e9 / nanos;
+    }
+
+    @Override
+    public long getSections() {
+        return _sections.sum();
+    }
+
+    @Override
+    public double getMeanSectionMillis() {
+        long sections = getSections();
+        return sections == 0 ? 0 : _sectionNanos.sum() / 1e6 / sections;
+    }
+
+    @Override
+    public double getMedianSectionMillis() {
+        return percentile(0.5);
+    }
+
+    @Override
+    public double getP99SectionMillis() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public double getMaxSectionMillis() {
+        return _maxSectionNanos.get() / 1e6;
+    }
+
+    @Override
+    public double getConfigLoadMillis() {
+        return _configNanos / 1e6;
+    }
+
+    @Override
+    public long getRotorSteps() {
+        return _rotorSteps.sum();
+    }
+
+    @Override
+    public long getDoubleSteps() {
+        return _doubleStepsTotal.sum();
+    }
+
+    /** Returns the bucket of _latencies counting a section that took
+     *  NANOS nanoseconds: the number of bits in NANOS. */
+    private static int bucket(long nanos) {
+        return 64 - Long.numberOfLeadingZeros(Math.max(nanos, 0));
+    }
+
+    /** Returns the upper bound, in milliseconds, of the bucket of
+     *  _latencies containing the section time below which fraction P of
+     *  the sections fall, or 0 if there are none. */
+    private double percentile(double p) {
+        long total = 0;
+        for (int b = 0; b < _latencies.length(); b += 1) {
+            total += _latencies.get(b);
+        }
+        long rank = (long) Math.ceil(p * total);
+        long seen = 0;
+        for (int b = 0; b < _latencies.length() && total > 0; b += 1) {
+            seen += _latencies.get(b);
+            if (seen >= rank) {
+                return Math.min(Math.pow(2, b), _maxSectionNanos.get())
+                    / 1e6;
+            }
+        }
+        return 0;
+    }
+
+    /** JFR event recording the loading of a configuration. */
+    @Name("enigma.ConfigLoad")
+    @Label("Configuration Load")
+    @Category("Enigma")
+    @Description("Reading a machine configuration")
+    static class ConfigLoadEvent extends Event {
+        /** Name of the configuration file. */
+        @Label("Configuration")
+        String configuration;
+
+        /** Number of rotors available. */
+        @Label("Rotors")
+        int rotors;
+    }
+
+    /** JFR event recording the processing of a section. */
+    @Name("enigma.Section")
+    @Label("Section")
+    @Category("Enigma")
+    @Description("A settings line and the messages converted under it")
+    static class SectionEvent extends Event {
+        /** Text of the settings line after its '*'. */
+        @Label("Settings")
+        String settings;
+
+        /** Number of characters converted. */
+        @Label("Characters")
+        long characters;
+
+        /** Number of rotor movements. */
+        @Label("Rotor Steps")
+        long rotorSteps;
+
+        /** Number of double steps. */
+        @Label("Double Steps")
+        long doubleSteps;
+
+        /** My type. */
+        static final EventType TYPE = EventType.getEventType(
+            SectionEvent.class);
+    }
+
+    /** Name of my MBean. */
+    private static final ObjectName NAME;
+
+    static {
+        try {
+            NAME = new ObjectName("enigma:type=Metrics");
+        } catch (JMException excp) {
+            throw new ExceptionInInitializerError(excp);
+        }
+    }
+
+    /** Value of System.nanoTime() when I was created. */
+    private final long _start;
+
+    /** Value of System.nanoTime() when the configuration started
+     *  loading. */
+    private long _configStart;
+
+    /** Nanoseconds taken to load the configuration. */
+    private volatile long _configNanos;
+
+    /** The JFR event recording the configuration loading, or null. */
+    private ConfigLoadEvent _configEvent;
+
+    /** Number of characters converted. */
+    private final LongAdder _characters = new LongAdder();
+
+    /** Number of sections processed. */
+    private final LongAdder _sections = new LongAdder();
+
+    /** Total nanoseconds taken by sections. */
+    private final LongAdder _sectionNanos = new LongAdder();
+
+    /** Number of sections taking less than 2**B nanoseconds, but not
+     *  less than 2**(B-1), at B. */
+    private final AtomicLongArray _latencies = new AtomicLongArray(65);
+
+    /** Longest time taken by a section, in nanoseconds. */
+    private final AtomicLong _maxSectionNanos = new AtomicLong();
+
+    /** Number of rotor movements. */
+    private final LongAdder _rotorSteps = new LongAdder();
+
+    /** Number of double steps. */
+    private final LongAdder _doubleStepsTotal = new LongAdder();
+
+    /** Scheduler of the reports begun by startReports, or null. */
+    private ScheduledExecutorService _reporter;
+
+    /** Where reports are printed. */
+    private PrintStream _reportOut;
+}
@@ -0,0 +1,46 @@
+package enigma;
+
+/** The management interface of the counters and timings kept by Metrics,
+ *  registered with the platform MBean server as enigma:type=Metrics.
+ *  Times are in milliseconds.  Section times are estimated from a
+ *  histogram whose buckets are powers of two, so they are rounded up to
+ *  at most twice their true values.
+ *  @author Ishaan Mauli Mishra
+ */
+public interface MetricsMXBean {
+
+    /** Returns the number of characters converted. */
+    long getCharacters();
+
+    /** Returns the number of characters converted per second since
+     *  processing started. */
+    double getCharactersPerSecond();
+
+    /** Returns the number of sections (settings lines and the messages
+     *  that follow them) processed. */
+    long getSections();
+
+    /** Returns the mean time taken to process a section. */
+    double getMeanSectionMillis();
+
+    /** Returns the median time taken to process a section. */
+    double getMedianSectionMillis();
+
+    /** Returns the 99th percentile of the time taken to process a
+     *  section. */
+    double getP99SectionMillis();
+
+    /** Returns the longest time taken to process a section. */
+    double getMaxSectionMillis();
+
+    /** Returns the time taken to load the configuration. */
+    double getConfigLoadMillis();
+
+    /** Returns the number of single-position rotor movements made in
+     *  converting characters. */
+    long getRotorSteps();
+
+    /** Returns the number of those rotor movements that were double
+     *  steps. */
+    long getDoubleSteps();
+}
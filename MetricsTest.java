@@ -0,0 +1,76 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Metrics class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class MetricsTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a machine with naval rotors I, III and IV, set to
+     *  "B Beta III IV I AAIP". */
+    private Machine standardMachine() {
+        Machine M = navalMachine("I", "III", "IV");
+        M.insertRotors(new String[] { "B", "Beta", "III", "IV", "I" });
+        M.setRotors("AAIP");
+        return M;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testEmpty() {
+        Metrics metrics = new Metrics();
+        assertEquals(0, metrics.getCharacters());
+        assertEquals(0, metrics.getSections());
+        assertEquals(0.0, metrics.getMedianSectionMillis(), 0);
+        assertEquals(0.0, metrics.getMeanSectionMillis(), 0);
+    }
+
+    @Test
+    public void testSections() {
+        Metrics metrics = new Metrics();
+        Machine M = standardMachine();
+        Metrics.Tracker tracker = metrics.tracker();
+        M.convert("XXXXX");
+        long before = M.rotorSteps();
+        tracker.start(" B Beta III IV I AAIP", M);
+        tracker.count(M.convert("ABC").length());
+        tracker.finish(M);
+        tracker.start(" B Beta III IV I AAIP", M);
+        tracker.count(M.convert("HELLO").length());
+        tracker.count(M.convert("WORLD").length());
+        tracker.finish(M);
+        assertEquals(13, metrics.getCharacters());
+        assertEquals(2, metrics.getSections());
+        assertEquals(M.rotorSteps() - before, metrics.getRotorSteps());
+        assertEquals(M.doubleSteps() - 1, metrics.getDoubleSteps());
+        assertTrue(metrics.getMaxSectionMillis() > 0);
+        assertTrue(metrics.getMedianSectionMillis()
+                   <= metrics.getP99SectionMillis());
+        assertTrue(metrics.getP99SectionMillis()
+                   <= metrics.getMaxSectionMillis());
+        assertTrue(metrics.summary().contains("13 chars"));
+    }
+
+    @Test
+    public void testConfigLoad() {
+        Metrics metrics = new Metrics();
+        metrics.configLoading();
+        metrics.configLoaded("naval.conf", standardMachine());
+        assertTrue(metrics.getConfigLoadMillis() >= 0);
+    }
+
+}
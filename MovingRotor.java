@@ -14,36 +14,46 @@ class MovingRotor extends Rotor {
      */
     MovingRotor(String name, Permutation perm, String notches) {
         super(name, perm);
-        _notches = new int[notches.length()];
-        for (int i = 0; i < notches.length(); i += 1) {
-            char c = notches.charAt(i);
-            if (!alphabet().contains(c)) {
+        int[] cps = notches.codePoints().toArray();
+        _notches = new int[cps.length];
+        _isNotch = new boolean[size()];
+        for (int i = 0; i < cps.length; i += 1) {
+            _notches[i] = alphabet().codePointIndex(cps[i]);
+            if (_notches[i] == -1) {
                 throw error("notch not in alphabet");
             }
-            _notches[i] = alphabet().toInt(c);
+            _isNotch[_notches[i]] = true;
         }
     }
 
+    /** Return the positions of my notches. */
+    int[] notches() {
+        return _notches.clone();
+    }
+
     @Override
     boolean rotates() {
         return true;
     }
 
     @Override
-    boolean atNotch() {
-        for (int i = 0; i < _notches.length; i += 1) {
-            if (_notches[i] == setting()) {
-                return true;
-            }
-        }
-        return false;
+    boolean atNotch(int posn) {
+        return _isNotch[posn];
     }
 
     @Override
-    void advance() {
-        set(permutation().wrap(setting() + 1));
+    int stepsToNotch(int posn) {
+        int steps = Integer.MAX_VALUE;
+        for (int i = 0; i < _notches.length; i += 1) {
+            int d = permutation().wrap(_notches[i] - posn);
+            steps = Math.min(steps, d == 0 ? size() : d);
+        }
+        return steps;
     }
 
     /** Position of my notches. */
-    private int[] _notches;
+    private final int[] _notches;
+
+    /** True at the position of each of my notches. */
+    private final boolean[] _isNotch;
 }
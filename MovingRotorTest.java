@@ -5,6 +5,8 @@ import org.junit.Rule;
 import org.junit.rules.Timeout;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 
 import static enigma.TestUtils.*;
@@ -20,33 +22,50 @@ public class MovingRotorTest {
 
     /* ***** TESTING UTILITIES ***** */
 
-    private Rotor rotor;
+    private MovingRotor rotor;
+    private Machine machine;
     private String alpha = UPPER_STRING;
 
     /** Check that rotor has an alphabet whose size is that of
-     *  FROMALPHA and TOALPHA and that maps each character of
-     *  FROMALPHA to the corresponding character of FROMALPHA, and
-     *  vice-versa. TESTID is used in error messages. */
+     *  FROMALPHA and TOALPHA and that, at the setting machine keeps for
+     *  it, maps each character of FROMALPHA to the corresponding
+     *  character of FROMALPHA, and vice-versa, and that machine scrambles
+     *  through it accordingly. TESTID is used in error messages. */
     private void checkRotor(String testId,
                             String fromAlpha, String toAlpha) {
         int N = fromAlpha.length();
         assertEquals(testId + " (wrong length)", N, rotor.size());
+        int setting = alpha.indexOf(machine.positionAfter(0).charAt(0));
+        Permutation reflector = new Permutation(NAVALA.get("B"), UPPER);
         for (int i = 0; i < N; i += 1) {
             char c = fromAlpha.charAt(i), e = toAlpha.charAt(i);
             int ci = alpha.indexOf(c), ei = alpha.indexOf(e);
             assertEquals(msg(testId, "wrong translation of %d (%c)", ci, c),
-                         ei, rotor.convertForward(ci));
+                         ei, rotor.convertForward(ci, setting));
             assertEquals(msg(testId, "wrong inverse of %d (%c)", ei, e),
-                         ci, rotor.convertBackward(ei));
+                         ci, rotor.convertBackward(ei, setting));
+            assertEquals(msg(testId, "wrong scramble of %d (%c)", ci, c),
+                         rotor.convertBackward(reflector.permute(ei),
+                                               setting),
+                         machine.scramble(ci));
         }
     }
 
     /** Set the rotor to the one with given NAME and permutation as
-     *  specified by the NAME entry in ROTORS, with given NOTCHES. */
+     *  specified by the NAME entry in ROTORS, with given NOTCHES, and
+     *  set machine to a machine holding it, at setting 0, as its only
+     *  rotor beside reflector B. */
     private void setRotor(String name, HashMap<String, String> rotors,
                           String notches) {
-        rotor = new MovingRotor(name, new Permutation(rotors.get(name), UPPER),
+        rotor = new MovingRotor(name,
+                                new Permutation(rotors.get(name), UPPER),
                                 notches);
+        Collection<Rotor> all = new ArrayList<>();
+        all.add(rotor);
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        machine = new Machine(UPPER, 2, 1, all);
+        machine.insertRotors(new String[] { "B", name });
+        machine.setPlugboard(new Permutation("", UPPER));
     }
 
     /* ***** TESTS ***** */
@@ -60,14 +79,14 @@ public class MovingRotorTest {
     @Test
     public void checkRotorAdvance() {
         setRotor("I", NAVALA, "");
-        rotor.advance();
+        machine.advance();
         checkRotor("Rotor I advanced", UPPER_STRING, NAVALB_MAP.get("I"));
     }
 
     @Test
     public void checkRotorSet() {
         setRotor("I", NAVALA, "");
-        rotor.set(25);
+        machine.setRotors(new int[] { 25 });
         checkRotor("Rotor I set", UPPER_STRING, NAVALZ_MAP.get("I"));
     }
 
@@ -0,0 +1,124 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** Statistics of the n-grams (runs of N consecutive characters) of a
+ *  language, used to judge how much a text resembles it.
+ *  @author Ishaan Mauli Mishra
+ */
+class Ngrams {
+
+    /** The statistics of the N-grams of TEXT, a sample of the language,
+     *  over the characters of ALPHA.  Lower-case letters of TEXT that are
+     *  not in ALPHA are taken as upper case; other characters not in
+     *  ALPHA, such as blanks, separate n-grams. */
+    Ngrams(Alphabet alpha, String text, int n) {
+        _size = alpha.size();
+        _n = n;
+        if (n < 1) {
+            throw error("n-grams must have at least one character");
+        }
+        long cells = 1;
+        for (int i = 0; i < n; i += 1) {
+            cells *= _size;
+            if (cells > MAX_CELLS) {
+                throw error("too many %d-grams to tabulate", n);
+            }
+        }
+        _high = (int) (cells / _size);
+        int[] counts = new int[(int) cells];
+        long total = 0;
+        int index = 0, run = 0;
+        for (int i = 0; i < text.length(); i += 1) {
+            char c = text.charAt(i);
+            int k = alpha.toInt(c);
+            if (k == -1) {
+                k = alpha.toInt(Character.toUpperCase(c));
+            }
+            if (k == -1) {
+                run = 0;
+                continue;
+            }
+            index = (index % _high) * _size + k;
+            run += 1;
+            if (run >= n) {
+                counts[index] += 1;
+                total += 1;
+            }
+        }
+        if (total == 0) {
+            throw error("no %d-grams in sample text", n);
+        }
+        _logProbs = new float[(int) cells];
+        double floor = Math.log(0.01 / total);
+        for (int i = 0; i < counts.length; i += 1) {
+            _logProbs[i] = (float) (counts[i] == 0
+                                    ? floor
+                                    : Math.log((double) counts[i] / total));
+        }
+    }
+
+    /** Returns the number of characters in each of my n-grams. */
+    int length() {
+        return _n;
+    }
+
+    /** Returns the mean log probability of the n-grams of the LEN
+     *  characters of TEXT, which are indices in my alphabet.  Higher
+     *  scores mean more typical texts. */
+    double score(int[] text, int len) {
+        if (len < _n) {
+            return 0;
+        }
+        int index = 0;
+        for (int i = 0; i < _n - 1; i += 1) {
+            index = index * _size + text[i];
+        }
+        double sum = 0;
+        for (int i = _n - 1; i < len; i += 1) {
+            index = (index % _high) * _size + text[i];
+            sum += _logProbs[index];
+        }
+        return sum / (len - _n + 1);
+    }
+
+    /** Returns the index of coincidence of the LEN characters of TEXT,
+     *  which are indices in an alphabet of SIZE characters, counting
+     *  them in COUNTS, which must have at least SIZE elements.  This is
+     *  the probability that two characters chosen from different
+     *  positions of TEXT are the same, times SIZE, and so is about 1 for
+     *  random text and higher for natural language. */
+    static double indexOfCoincidence(int[] text, int len, int size,
+                                     int[] counts) {
+        if (len < 2) {
+            return 0;
+        }
+        for (int c = 0; c < size; c += 1) {
+            counts[c] = 0;
+        }
+        for (int i = 0; i < len; i += 1) {
+            counts[text[i]] += 1;
+        }
+        long pairs = 0;
+        for (int c = 0; c < size; c += 1) {
+            pairs += (long) counts[c] * (counts[c] - 1);
+        }
+        return (double) pairs * size / ((long) len * (len - 1));
+    }
+
+    /** Largest number of n-grams tabulated. */
+    static final long MAX_CELLS = 1 << 24;
+
+    /** Size of my alphabet. */
+    private final int _size;
+
+    /** Length of my n-grams. */
+    private final int _n;
+
+    /** Number of (n-1)-grams. */
+    private final int _high;
+
+    /** Natural logarithm of the frequency of each n-gram, indexed by the
+     *  n-gram as a number in base _size. */
+    private final float[] _logProbs;
+}
@@ -0,0 +1,133 @@
+package enigma;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static enigma.EnigmaException.*;
+
+/** Converts long messages on several cores.  The characters to be
+ *  converted are split into chunks, and each chunk is converted by a copy
+ *  of the machine fast-forwarded (with Machine.seek) to the position it
+ *  would have reached when starting that chunk.  The results are the same
+ *  as converting the messages in order with the original machine.
+ *  @author Ishaan Mauli Mishra
+ */
+class ParallelConverter {
+
+    /** A converter that runs on POOL, giving each task about CHUNK
+     *  characters. */
+    ParallelConverter(ForkJoinPool pool, int chunk) {
+        _pool = pool;
+        _chunk = chunk;
+    }
+
+    /** A converter that runs on the common pool. */
+    ParallelConverter() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK);
+    }
+
+    /** Returns the encodings/decodings of the consecutive messages LINES
+     *  using M, which is left in the state it would have after converting
+     *  them one by one with M.convert. */
+    String[] convert(Machine M, String[] lines) {
+        Alphabet alphabet = M.alphabet();
+        int total = 0;
+        for (String line : lines) {
+            total += line.length();
+        }
+        char[] in = new char[total];
+        int[] ends = new int[lines.length];
+        int n = 0;
+        for (int k = 0; k < lines.length; k += 1) {
+            String line = lines[k];
+            for (int i = 0; i < line.length(); i += 1) {
+                char c = line.charAt(i);
+                if (c == ' ') {
+                    continue;
+                }
+                if (!alphabet.contains(c)) {
+                    throw error("character %c at position %d not in alphabet",
+                                c, i);
+                }
+                in[n] = c;
+                n += 1;
+            }
+            ends[k] = n;
+        }
+        char[] out = new char[n];
+        if (n <= _chunk) {
+            M.convert(in, 0, n, out, 0);
+        } else {
+            /* Records M's stepping schedule once, before the copies
+             * that share it are made. */
+            M.seek(0);
+            Chunk all = new Chunk(M, in, out, 0, n);
+            _pool.invoke(all);
+            M.seek(n);
+            M.countSteps(all._rotorSteps, all._doubleSteps);
+        }
+        String[] result = new String[lines.length];
+        for (int k = 0; k < lines.length; k += 1) {
+            int start = k == 0 ? 0 : ends[k - 1];
+            result[k] = new String(out, start, ends[k] - start);
+        }
+        return result;
+    }
+
+    /** Task converting a range of characters. */
+    private class Chunk extends RecursiveAction {
+
+        /** Converts IN[FROM .. TO-1] into OUT[FROM .. TO-1], where IN[0]
+         *  would be converted next by M. */
+        Chunk(Machine M, char[] in, char[] out, int from, int to) {
+            _machine = M;
+            _in = in;
+            _out = out;
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (_to - _from <= _chunk) {
+                Machine M = _machine.copy();
+                M.seek(_from);
+                M.convert(_in, _from, _to - _from, _out, _from);
+                _rotorSteps = M.rotorSteps();
+                _doubleSteps = M.doubleSteps();
+            } else {
+                int mid = (_from + _to) >>> 1;
+                Chunk left = new Chunk(_machine, _in, _out, _from, mid),
+                    right = new Chunk(_machine, _in, _out, mid, _to);
+                invokeAll(left, right);
+                _rotorSteps = left._rotorSteps + right._rotorSteps;
+                _doubleSteps = left._doubleSteps + right._doubleSteps;
+            }
+        }
+
+        /** Machine in its state before converting _in[0]. */
+        private final Machine _machine;
+
+        /** Characters to convert, without blanks. */
+        private final char[] _in;
+
+        /** Destination of the converted characters. */
+        private final char[] _out;
+
+        /** Range of _in converted by this task. */
+        private final int _from, _to;
+
+        /** Rotor movements and double steps made in converting my range,
+         *  once computed. */
+        private long _rotorSteps, _doubleSteps;
+    }
+
+    /** Default number of characters given to one task. */
+    static final int DEFAULT_CHUNK = 1 << 16;
+
+    /** Pool on which conversions run. */
+    private final ForkJoinPool _pool;
+
+    /** Most characters converted by one task. */
+    private final int _chunk;
+}
@@ -0,0 +1,65 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the ParallelConverter class.
+ *  @author Ishaan Mauli Mishra
+ */
+public class ParallelConverterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a machine with naval rotors I, III and IV, set to
+     *  "B Beta III IV I AXLE" with rings "ABCD" and plugboard (AM) (ZQ). */
+    private Machine machine() {
+        Machine M = navalMachine("I", "III", "IV");
+        M.insertRotors(new String[] { "B", "Beta", "III", "IV", "I" });
+        M.setRotors("AXLE");
+        M.setRings("ABCD");
+        M.setPlugboard(new Permutation("(AM) (ZQ)", UPPER));
+        return M;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testMatchesSequential() {
+        String[] lines = new String[40];
+        for (int k = 0; k < lines.length; k += 1) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < 37 * k; i += 1) {
+                line.append(i % 7 == 0 ? ' '
+                            : UPPER_STRING.charAt((i * k + 3) % 26));
+            }
+            lines[k] = line.toString();
+        }
+        Machine sequential = machine();
+        Machine parallel = machine();
+        ParallelConverter converter =
+            new ParallelConverter(new ForkJoinPool(4), 100);
+        for (int round = 0; round < 2; round += 1) {
+            String[] result = converter.convert(parallel, lines);
+            for (int k = 0; k < lines.length; k += 1) {
+                assertEquals(sequential.convert(lines[k]), result[k]);
+            }
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadChar() {
+        new ParallelConverter().convert(machine(),
+                                        new String[] { "ABC", "AB?" });
+    }
+
+}
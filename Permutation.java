@@ -1,5 +1,7 @@
 package enigma;
 
+import java.util.Arrays;
+
 import static enigma.EnigmaException.*;
 
 /** Represents a permutation of a range of integers starting at 0 corresponding
@@ -15,36 +17,82 @@ class Permutation {
      *  Whitespace is ignored. */
     Permutation(String cycles, Alphabet alphabet) {
         _alphabet = alphabet;
-        _cycles = "";
-        for (int i = 0; i < cycles.length(); i += 1) {
-            char c = cycles.charAt(i);
-            if (c != ' ' && c != '(' && c != ')'
-                    && (_cycles.indexOf(c) != -1
-                        || !alphabet().contains(c))) {
-                throw error("error in cycles");
+        _cycles = cycles;
+        _forward = new int[alphabet.size()];
+        _inverse = new int[alphabet.size()];
+        for (int i = 0; i < _forward.length; i += 1) {
+            _forward[i] = i;
+            _inverse[i] = i;
+        }
+        boolean[] seen = new boolean[alphabet.size()];
+        int[] cycle = new int[alphabet.size()];
+        int n = 0;
+        for (int i = 0; i < cycles.length(); ) {
+            int c = cycles.codePointAt(i);
+            i += Character.charCount(c);
+            if (c == '(') {
+                n = 0;
+            } else if (c == ')') {
+                addCycle(cycle, n);
+                n = 0;
+            } else if (!Character.isWhitespace(c)) {
+                int k = alphabet.codePointIndex(c);
+                if (k == -1 || seen[k]) {
+                    throw error("error in cycles");
+                }
+                seen[k] = true;
+                cycle[n] = k;
+                n += 1;
             }
-            _cycles += c;
         }
     }
 
-    /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
-     *  c0c1...cm. */
-    private void addCycle(String cycle) {
-        _cycles += " (";
-        for (int i = 0; i < cycle.length(); i += 1) {
-            char c = cycle.charAt(i);
-            if (_cycles.indexOf(c) != -1 || !alphabet().contains(c)) {
-                throw error("error in cycle");
+    /** Set this Permutation to the one taking each index I of ALPHABET
+     *  to FORWARD[I], whose inverse takes I to INVERSE[I].  The arrays
+     *  are used as given, not copied. */
+    Permutation(int[] forward, int[] inverse, Alphabet alphabet) {
+        _alphabet = alphabet;
+        if (forward.length != alphabet.size()
+            || inverse.length != alphabet.size()) {
+            throw error("permutation table has wrong size");
+        }
+        for (int i = 0; i < forward.length; i += 1) {
+            if (forward[i] < 0 || forward[i] >= forward.length
+                || inverse[forward[i]] != i) {
+                throw error("permutation tables are inconsistent");
             }
-            _cycles += c;
         }
+        _forward = forward;
+        _inverse = inverse;
     }
 
-    /** Return the value of P modulo the size of this permutation. */
+    /** Add the cycle c0->c1->...->cm->c0 to the permutation, where
+     *  CYCLE[0 .. N-1] holds the indices of c0c1...cm. */
+    private void addCycle(int[] cycle, int n) {
+        for (int i = 0; i < n; i += 1) {
+            int from = cycle[i];
+            int to = cycle[(i + 1) % n];
+            _forward[from] = to;
+            _inverse[to] = from;
+        }
+    }
+
+    /** Return the value of P modulo the size of this permutation.  Values
+     *  within one size of the range 0..size()-1, as rotors produce, are
+     *  wrapped without dividing. */
     final int wrap(int p) {
-        int r = p % size();
+        int size = _forward.length;
+        if (p >= size) {
+            p -= size;
+        } else if (p < 0) {
+            p += size;
+        }
+        if (p >= 0 && p < size) {
+            return p;
+        }
+        int r = p % size;
         if (r < 0) {
-            r += size();
+            r += size;
         }
         return r;
     }
@@ -57,60 +105,93 @@ class Permutation {
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        int index = wrap(p);
-        char cp = alphabet().toChar(index);
-        char permuted = permute(cp);
-        return alphabet().toInt(permuted);
+        return _forward[wrap(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        int index = wrap(c);
-        char cc = alphabet().toChar(index);
-        char inverted = invert(cc);
-        return alphabet().toInt(inverted);
+        return _inverse[wrap(c)];
     }
 
     /** Return the result of applying this permutation to the index of P
      *  in ALPHABET, and converting the result to a character of ALPHABET. */
     char permute(char p) {
-        int pos = _cycles.indexOf(p);
         if (!alphabet().contains(p)) {
             throw error("Not in alphabet");
         }
-        if (pos != -1) {
-            if (_cycles.charAt(pos + 1) != ')') {
-                return _cycles.charAt(pos + 1);
-            } else {
-                for (int i = pos - 1; i >= 0; i -= 1) {
-                    if (_cycles.charAt(i) == '(') {
-                        return _cycles.charAt(i + 1);
-                    }
-                }
-            }
-        }
-        return p;
+        return alphabet().toChar(_forward[alphabet().toInt(p)]);
     }
 
     /** Return the result of applying the inverse of this permutation to C. */
     char invert(char c) {
-        int pos = _cycles.indexOf(c);
         if (!alphabet().contains(c)) {
             throw error("Not in alphabet");
         }
-        if (pos != -1) {
-            if (_cycles.charAt(pos - 1) != '(') {
-                return _cycles.charAt(pos - 1);
-            } else {
-                for (int i = pos + 1; i < _cycles.length(); i += 1) {
-                    if (_cycles.charAt(i) == ')') {
-                        return _cycles.charAt(i - 1);
-                    }
-                }
+        return alphabet().toChar(_inverse[alphabet().toInt(c)]);
+    }
+
+    /** Return the permutation that applies P and then me.  P must permute
+     *  an alphabet of my size. */
+    Permutation compose(Permutation p) {
+        if (p.size() != size()) {
+            throw error("permutations have different sizes");
+        }
+        int[] forward = new int[size()];
+        int[] inverse = new int[size()];
+        for (int i = 0; i < forward.length; i += 1) {
+            forward[i] = _forward[p._forward[i]];
+            inverse[forward[i]] = i;
+        }
+        return new Permutation(forward, inverse, _alphabet);
+    }
+
+    /** Return my inverse. */
+    Permutation inverse() {
+        return new Permutation(_inverse.clone(), _forward.clone(), _alphabet);
+    }
+
+    /** Return my conjugate by a rotation of K positions: the permutation
+     *  taking each P to permute(P + K) - K, modulo my size.  This is how
+     *  a rotor with permutation me acts when its setting less its
+     *  Ringstellung shift is K. */
+    Permutation rotated(int k) {
+        int size = size();
+        int[] forward = new int[size];
+        int[] inverse = new int[size];
+        for (int i = 0; i < size; i += 1) {
+            forward[i] = wrap(_forward[wrap(i + k)] - k);
+            inverse[forward[i]] = i;
+        }
+        return new Permutation(forward, inverse, _alphabet);
+    }
+
+    /** Return me applied N times, where a negative N applies my inverse
+     *  -N times. */
+    Permutation power(int n) {
+        int size = size();
+        int[] forward = new int[size];
+        int[] inverse = new int[size];
+        int[] cycle = new int[size];
+        boolean[] seen = new boolean[size];
+        for (int i = 0; i < size; i += 1) {
+            if (seen[i]) {
+                continue;
+            }
+            int len = 0;
+            for (int k = i; !seen[k]; k = _forward[k]) {
+                seen[k] = true;
+                cycle[len] = k;
+                len += 1;
+            }
+            int shift = Math.floorMod(n, len);
+            for (int j = 0; j < len; j += 1) {
+                int to = cycle[(j + shift) % len];
+                forward[cycle[j]] = to;
+                inverse[to] = cycle[j];
             }
         }
-        return c;
+        return new Permutation(forward, inverse, _alphabet);
     }
 
     /** Return the alphabet used to initialize this Permutation. */
@@ -118,28 +199,53 @@ class Permutation {
         return _alphabet;
     }
 
+    /** Return true iff P, which may be null, maps every index as I do. */
+    boolean sameMapping(Permutation p) {
+        return p == this || (p != null && Arrays.equals(_forward, p._forward));
+    }
+
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        int posPar = 0;
-        int numChars = 0;
-        for (int i = 1; i < _cycles.length(); i += 1) {
-            if (_cycles.charAt(i) == '(') {
-                posPar = i;
-            } else if (_cycles.charAt(i) == ')') {
-                if (i - posPar == 2) {
-                    return false;
+        for (int i = 0; i < _forward.length; i += 1) {
+            if (_forward[i] == i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        if (_cycles == null) {
+            StringBuilder cycles = new StringBuilder();
+            boolean[] seen = new boolean[_forward.length];
+            for (int i = 0; i < _forward.length; i += 1) {
+                if (seen[i] || _forward[i] == i) {
+                    continue;
+                }
+                cycles.append(cycles.length() == 0 ? "(" : " (");
+                for (int k = i; !seen[k]; k = _forward[k]) {
+                    seen[k] = true;
+                    cycles.appendCodePoint(_alphabet.codePoint(k));
                 }
-            } else if (_cycles.charAt(i) != ' ') {
-                numChars += 1;
+                cycles.append(')');
             }
+            _cycles = cycles.toString();
         }
-        return (numChars == alphabet().size());
+        return _cycles;
     }
 
     /** Alphabet of this permutation. */
     private Alphabet _alphabet;
 
-    /** Cycles of this permutation. */
+    /** Cycles of this permutation, as given to the constructor, or null
+     *  if they have not yet been computed from _forward. */
     private String _cycles;
+
+    /** Image of each index under this permutation. */
+    private int[] _forward;
+
+    /** Image of each index under the inverse of this permutation. */
+    private int[] _inverse;
 }
@@ -192,4 +192,76 @@ public class PermutationTest {
         assertFalse(p2.derangement());
     }
 
+    @Test
+    public void testCompose() {
+        Alphabet abcd = getNewAlphabet("ABCD");
+        Permutation p = getNewPermutation("(AB)", abcd);
+        Permutation q = getNewPermutation("(BCD)", abcd);
+        perm = q.compose(p);
+        alpha = "ABCD";
+        checkPerm("q after p", "ABCD", "CADB");
+        perm = p.compose(q);
+        checkPerm("p after q", "ABCD", "BCDA");
+    }
+
+    @Test
+    public void testInverse() {
+        Alphabet abcd = getNewAlphabet("ABCD");
+        perm = getNewPermutation("(ABC)", abcd).inverse();
+        alpha = "ABCD";
+        checkPerm("inverse", "ABCD", "CABD");
+    }
+
+    @Test
+    public void testRotated() {
+        Permutation p = getNewPermutation(NAVALA.get("I"), UPPER);
+        for (int k = -30; k < 30; k += 1) {
+            Permutation r = p.rotated(k);
+            for (int c = 0; c < 26; c += 1) {
+                assertEquals(p.wrap(p.permute(c + k) - k), r.permute(c));
+                assertEquals(c, r.invert(r.permute(c)));
+            }
+        }
+    }
+
+    @Test
+    public void testPower() {
+        Alphabet abcd = getNewAlphabet("ABCD");
+        Permutation p = getNewPermutation("(ABC)", abcd);
+        alpha = "ABCD";
+        perm = p.power(2);
+        checkPerm("square", "ABCD", "CABD");
+        perm = p.power(3);
+        checkPerm("cube", "ABCD", "ABCD");
+        perm = p.power(-1);
+        checkPerm("inverse", "ABCD", "CABD");
+        perm = p.power(0);
+        checkPerm("identity", "ABCD", "ABCD");
+        Permutation q = getNewPermutation(NAVALA.get("III"), UPPER);
+        Permutation r = q;
+        for (int n = 1; n < 30; n += 1) {
+            for (int c = 0; c < 26; c += 1) {
+                assertEquals(r.permute(c), q.power(n).permute(c));
+            }
+            r = q.compose(r);
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testComposeSizes() {
+        getNewPermutation("", UPPER).compose(
+            getNewPermutation("", getNewAlphabet("ABCD")));
+    }
+
+    @Test
+    public void testSupplementary() {
+        String smile = "\uD83D\uDE00";
+        Alphabet alpha = getNewAlphabet("AB" + smile);
+        Permutation p = getNewPermutation("(A" + smile + ") (B)", alpha);
+        assertEquals(3, p.size());
+        assertEquals(2, p.permute(0));
+        assertEquals(0, p.permute(2));
+        assertEquals(1, p.permute(1));
+        assertEquals(2, p.invert(0));
+    }
 }
@@ -0,0 +1,155 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+
+/** A Reader whose source is read ahead by a thread of its own, so that
+ *  reading overlaps the work of the thread consuming the characters.  The
+ *  reading thread fills blocks from a fixed pool and passes them through
+ *  an SpscRing; the consumer passes them back through another once it has
+ *  copied them out.  Once the pool is allocated, reading allocates
+ *  nothing, and the reading thread stops when every block is full.
+ *  @author Ishaan Mauli Mishra
+ */
+class PipelineReader extends Reader {
+
+    /** A reader of the characters of IN, read ahead into a pool of
+     *  BLOCKS blocks of BLOCKSIZE characters each.  BLOCKS must be a
+     *  power of two. */
+    PipelineReader(Reader in, int blockSize, int blocks) {
+        _in = in;
+        _full = new SpscRing<Block>(blocks);
+        _free = new SpscRing<Block>(blocks);
+        for (int i = 0; i < blocks; i += 1) {
+            _free.offer(new Block(blockSize));
+        }
+        _thread = new Thread(this::fill, "enigma-reader");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (_block == null || _pos >= _block._length) {
+            if (!next()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, _block._length - _pos);
+        System.arraycopy(_block._data, _pos, cbuf, off, n);
+        _pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        _thread.interrupt();
+        _in.close();
+    }
+
+    /** Return my current block, if any, to the pool and make the next
+     *  full block current.  Returns false at the end of the input. */
+    private boolean next() throws IOException {
+        if (_closed) {
+            throw new IOException("reader closed");
+        }
+        if (_block != null && _block._length == -1) {
+            return false;
+        }
+        if (_block != null) {
+            _free.offer(_block);
+        }
+        try {
+            _block = _full.take();
+        } catch (InterruptedException excp) {
+            _block = null;
+            throw new InterruptedIOException();
+        }
+        _pos = 0;
+        if (_block._length == -1) {
+            if (_error != null) {
+                throw _error;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /** Fill free blocks from _in and pass them on until the input or
+     *  my consumer ends.  Runs in _thread. */
+    private void fill() {
+        try {
+            while (true) {
+                Block block = _free.take();
+                int n;
+                do {
+                    n = _in.read(block._data, 0, block._data.length);
+                } while (n == 0);
+                block._length = n;
+                _full.put(block);
+                if (n == -1) {
+                    return;
+                }
+            }
+        } catch (IOException excp) {
+            _error = excp;
+        } catch (InterruptedException excp) {
+            return;
+        }
+        try {
+            Block block = _free.take();
+            block._length = -1;
+            _full.put(block);
+        } catch (InterruptedException excp) {
+            return;
+        }
+    }
+
+    /** A buffer of characters passed between the threads. */
+    private static class Block {
+
+        /** A block of SIZE characters. */
+        Block(int size) {
+            _data = new char[size];
+        }
+
+        /** My characters are _data[0 .. _length-1]. */
+        private final char[] _data;
+
+        /** The number of valid characters in _data, or -1 if I mark the
+         *  end of the input. */
+        private int _length;
+    }
+
+    /** Source of characters. */
+    private final Reader _in;
+
+    /** Blocks filled by _thread and not yet consumed, oldest first. */
+    private final SpscRing<Block> _full;
+
+    /** Blocks available to _thread. */
+    private final SpscRing<Block> _free;
+
+    /** The thread reading _in. */
+    private final Thread _thread;
+
+    /** The error that stopped _thread, or null. */
+    private volatile IOException _error;
+
+    /** The block being consumed, or null before the first. */
+    private Block _block;
+
+    /** Position in _block of the next character to deliver. */
+    private int _pos;
+
+    /** True iff I have been closed. */
+    private boolean _closed;
+}
@@ -0,0 +1,224 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/** The suite of all JUnit tests for the SpscRing, PipelineReader and
+ *  PipelineWriter classes.
+ *  @author Ishaan Mauli Mishra
+ */
+public class PipelineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return N random upper-case letters and newlines, from SEED. */
+    private String randomText(long seed, int n) {
+        Random rand = new Random(seed);
+        char[] text = new char[n];
+        for (int i = 0; i < n; i += 1) {
+            int k = rand.nextInt(27);
+            text[i] = k == 26 ? '\n' : (char) ('A' + k);
+        }
+        return new String(text);
+    }
+
+    /** A Reader delivering N characters and then failing. */
+    private static class FailingReader extends Reader {
+
+        /** A reader failing after N characters. */
+        FailingReader(int n) {
+            _left = n;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (_left == 0) {
+                throw new IOException("broken input");
+            }
+            int n = Math.min(len, _left);
+            for (int i = 0; i < n; i += 1) {
+                cbuf[off + i] = 'A';
+            }
+            _left -= n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /** Number of characters still to be delivered. */
+        private int _left;
+    }
+
+    /** A Writer that fails on every write. */
+    private static class FailingWriter extends Writer {
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            throw new IOException("broken output");
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testRing() {
+        SpscRing<Integer> ring = new SpscRing<Integer>(4);
+        assertEquals(4, ring.capacity());
+        assertNull(ring.poll());
+        for (int i = 0; i < 4; i += 1) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(0, (int) ring.poll());
+        assertTrue(ring.offer(4));
+        for (int i = 1; i <= 4; i += 1) {
+            assertEquals(i, (int) ring.poll());
+        }
+        assertNull(ring.poll());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRingCapacity() {
+        new SpscRing<Integer>(6);
+    }
+
+    @Test
+    public void testRingThreads() throws InterruptedException {
+        final int n = 100000;
+        SpscRing<Integer> ring = new SpscRing<Integer>(8);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < n; i += 1) {
+                    ring.put(i);
+                }
+            } catch (InterruptedException excp) {
+                return;
+            }
+        });
+        producer.start();
+        for (int i = 0; i < n; i += 1) {
+            assertEquals(i, (int) ring.take());
+        }
+        producer.join();
+        assertNull(ring.poll());
+    }
+
+    @Test
+    public void testReader() throws IOException {
+        String text = randomText(1, 100000);
+        Reader in = new PipelineReader(new StringReader(text), 100, 4);
+        StringBuilder result = new StringBuilder();
+        char[] piece = new char[37];
+        assertEquals(0, in.read(piece, 0, 0));
+        int n;
+        while ((n = in.read(piece, 0, piece.length)) != -1) {
+            assertTrue(n > 0);
+            result.append(piece, 0, n);
+        }
+        assertEquals(-1, in.read(piece, 0, piece.length));
+        in.close();
+        assertEquals(text, result.toString());
+    }
+
+    @Test
+    public void testLines() {
+        String text = randomText(2, 20000);
+        LineReader lines =
+            new LineReader(new PipelineReader(new StringReader(text), 64, 2),
+                           16);
+        LineReader expected = new LineReader(new StringReader(text), 16);
+        while (expected.hasNextLine()) {
+            assertTrue(lines.hasNextLine());
+            assertEquals(expected.readLine(), lines.readLine());
+        }
+        assertFalse(lines.hasNextLine());
+    }
+
+    @Test
+    public void testReaderError() throws IOException {
+        Reader in = new PipelineReader(new FailingReader(250), 100, 2);
+        char[] piece = new char[100];
+        int total = 0;
+        try {
+            while (true) {
+                int n = in.read(piece, 0, piece.length);
+                assertNotEquals(-1, n);
+                total += n;
+            }
+        } catch (IOException excp) {
+            assertEquals("broken input", excp.getMessage());
+        }
+        assertEquals(250, total);
+    }
+
+    @Test
+    public void testWriter() throws IOException {
+        String text = randomText(3, 100000);
+        StringWriter sink = new StringWriter();
+        Writer out = new PipelineWriter(sink, 64, 4);
+        out.write(text.charAt(0));
+        out.write(text, 1, 999);
+        out.write(text.toCharArray(), 1000, text.length() - 1000);
+        out.close();
+        out.close();
+        assertEquals(text, sink.toString());
+    }
+
+    @Test
+    public void testFlush() throws IOException {
+        StringWriter sink = new StringWriter();
+        Writer out = new PipelineWriter(sink, 64, 2);
+        out.write("ABC");
+        out.flush();
+        assertEquals("ABC", sink.toString());
+        out.write("DEF");
+        out.flush();
+        assertEquals("ABCDEF", sink.toString());
+        out.close();
+    }
+
+    @Test
+    public void testWriterError() {
+        Writer out = new PipelineWriter(new FailingWriter(), 64, 2);
+        try {
+            for (int i = 0; i < 1000; i += 1) {
+                out.write("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+            }
+            out.flush();
+            fail("error not reported");
+        } catch (IOException excp) {
+            assertEquals("broken output", excp.getMessage());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteAfterClose() throws IOException {
+        Writer out = new PipelineWriter(new StringWriter(), 64, 2);
+        out.close();
+        out.write("A");
+    }
+
+}
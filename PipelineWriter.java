@@ -0,0 +1,233 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.locks.LockSupport;
+
+/** A Writer that hands what is written to a thread of its own, which
+ *  writes it to another Writer, so that writing overlaps the work of the
+ *  thread producing the characters.  Characters are collected in blocks
+ *  from a fixed pool and passed to the writing thread through an
+ *  SpscRing; it passes them back through another once it has written
+ *  them.  Once the pool is allocated, writing allocates nothing, and the
+ *  producer waits when every block is full.  Errors of the writing thread
+ *  are reported by the next write, flush or close.
+ *  @author Ishaan Mauli Mishra
+ */
+class PipelineWriter extends Writer {
+
+    /** A writer of characters to OUT, collected in a pool of BLOCKS
+     *  blocks of BLOCKSIZE characters each.  BLOCKS must be a power of
+     *  two greater than 1. */
+    PipelineWriter(Writer out, int blockSize, int blocks) {
+        if (blocks < 2) {
+            throw new IllegalArgumentException("too few blocks");
+        }
+        _out = out;
+        _full = new SpscRing<Block>(blocks);
+        _free = new SpscRing<Block>(blocks);
+        _block = new Block(blockSize);
+        for (int i = 1; i < blocks; i += 1) {
+            _free.offer(new Block(blockSize));
+        }
+        _thread = new Thread(this::drain, "enigma-writer");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        check();
+        while (len > 0) {
+            int n = Math.min(len, _block._data.length - _block._length);
+            System.arraycopy(cbuf, off, _block._data, _block._length, n);
+            _block._length += n;
+            off += n;
+            len -= n;
+            if (_block._length == _block._data.length) {
+                send();
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        check();
+        while (len > 0) {
+            int n = Math.min(len, _block._data.length - _block._length);
+            str.getChars(off, off + n, _block._data, _block._length);
+            _block._length += n;
+            off += n;
+            len -= n;
+            if (_block._length == _block._data.length) {
+                send();
+            }
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        check();
+        _block._data[_block._length] = (char) c;
+        _block._length += 1;
+        if (_block._length == _block._data.length) {
+            send();
+        }
+    }
+
+    /** Pass everything written so far to my destination and flush it,
+     *  returning when that is done. */
+    @Override
+    public void flush() throws IOException {
+        check();
+        _block._flush = true;
+        _flushes += 1;
+        send();
+        _flusher = Thread.currentThread();
+        while (_flushed != _flushes && _error == null) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                _flusher = null;
+                throw new InterruptedIOException();
+            }
+        }
+        _flusher = null;
+        check();
+    }
+
+    /** Write everything written so far to my destination and close it. */
+    @Override
+    public void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        _block._end = true;
+        try {
+            _full.put(_block);
+            _closed = true;
+            _thread.join();
+        } catch (InterruptedException excp) {
+            throw new InterruptedIOException();
+        }
+        if (_error != null) {
+            throw _error;
+        }
+    }
+
+    /** Throw the error that stopped my writing thread, if any, or an
+     *  exception if I have been closed. */
+    private void check() throws IOException {
+        if (_closed) {
+            throw new IOException("writer closed");
+        }
+        if (_error != null) {
+            throw _error;
+        }
+    }
+
+    /** Pass the current block to my writing thread and start another. */
+    private void send() throws IOException {
+        try {
+            _full.put(_block);
+            _block = _free.take();
+        } catch (InterruptedException excp) {
+            throw new InterruptedIOException();
+        }
+        _block._length = 0;
+        _block._flush = false;
+    }
+
+    /** Write the blocks passed to me to _out and return them to the pool
+     *  until the last.  After an error, the blocks are only returned, so
+     *  that the producer is not stopped before it learns of the error.
+     *  Runs in _thread. */
+    private void drain() {
+        try {
+            while (true) {
+                Block block = _full.take();
+                if (_error == null) {
+                    try {
+                        _out.write(block._data, 0, block._length);
+                        if (block._flush) {
+                            _out.flush();
+                        }
+                        if (block._end) {
+                            _out.close();
+                        }
+                    } catch (IOException excp) {
+                        _error = excp;
+                    }
+                }
+                if (block._end) {
+                    return;
+                }
+                if (block._flush || _error != null) {
+                    if (block._flush) {
+                        _flushed += 1;
+                    }
+                    Thread flusher = _flusher;
+                    if (flusher != null) {
+                        LockSupport.unpark(flusher);
+                    }
+                }
+                _free.put(block);
+            }
+        } catch (InterruptedException excp) {
+            return;
+        }
+    }
+
+    /** A buffer of characters passed between the threads. */
+    private static class Block {
+
+        /** A block of SIZE characters. */
+        Block(int size) {
+            _data = new char[size];
+        }
+
+        /** My characters are _data[0 .. _length-1]. */
+        private final char[] _data;
+
+        /** The number of valid characters in _data. */
+        private int _length;
+
+        /** True iff my destination is to be flushed after my
+         *  characters are written to it. */
+        private boolean _flush;
+
+        /** True iff my destination is to be closed after my characters
+         *  are written to it. */
+        private boolean _end;
+    }
+
+    /** Destination of my characters. */
+    private final Writer _out;
+
+    /** Blocks passed to _thread and not yet written, oldest first. */
+    private final SpscRing<Block> _full;
+
+    /** Blocks available for writing. */
+    private final SpscRing<Block> _free;
+
+    /** The thread writing to _out. */
+    private final Thread _thread;
+
+    /** The error that stopped _thread from writing, or null. */
+    private volatile IOException _error;
+
+    /** The block being filled. */
+    private Block _block;
+
+    /** Number of flushes requested. */
+    private long _flushes;
+
+    /** Number of flushes completed by _thread. */
+    private volatile long _flushed;
+
+    /** The thread waiting in flush for _thread, or null. */
+    private volatile Thread _flusher;
+
+    /** True iff I have been closed. */
+    private boolean _closed;
+}
@@ -1,7 +1,5 @@
 package enigma;
 
-import static enigma.EnigmaException.*;
-
 /** Class that represents a reflector in the enigma.
  *  @author Ishaan Mauli Mishra
  */
@@ -18,11 +16,4 @@ class Reflector extends FixedRotor {
         return true;
     }
 
-    @Override
-    void set(int posn) {
-        if (posn != 0) {
-            throw error("reflector has only one position");
-        }
-    }
-
 }
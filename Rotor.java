@@ -1,8 +1,10 @@
 package enigma;
 
-import static enigma.EnigmaException.*;
-
-/** Superclass that represents a rotor in the enigma machine.
+/** Superclass that represents a rotor in the enigma machine.  The name,
+ *  permutation and notches of a rotor never change, so one rotor may be
+ *  used by any number of machines at once; each Machine keeps the setting
+ *  and ring setting of its rotors itself and passes them to the methods
+ *  that take them.
  *  @author Ishaan Mauli Mishra
  */
 class Rotor {
@@ -11,8 +13,6 @@ class Rotor {
     Rotor(String name, Permutation perm) {
         _name = name;
         _permutation = perm;
-        _setting = 0;
-        _shift = 0;
     }
 
     /** Return my name. */
@@ -45,55 +45,31 @@ class Rotor {
         return false;
     }
 
-    /** Return my current setting. */
-    int setting() {
-        return _setting;
-    }
-
-    /** Set setting() to POSN.  */
-    void set(int posn) {
-        _setting = permutation().wrap(posn);
-    }
-
-    /** Set setting() to character CPOSN. */
-    void set(char cposn) {
-        int posn = alphabet().toInt(cposn);
-        if (posn == -1) {
-            throw error("Character to set not in alphabet");
-        }
-        set(posn);
-    }
-
     /** Return the conversion of P (an integer in the range 0..size()-1)
-     *  according to my permutation. */
-    int convertForward(int p) {
-        int fromInd = permutation().wrap(p + (setting() - _shift));
-        int toInd = permutation().permute(fromInd);
-        return permutation().wrap(toInd - (setting() - _shift));
+     *  according to my permutation when my setting less my Ringstellung
+     *  shift is OFFSET. */
+    int convertForward(int p, int offset) {
+        return _permutation.wrap(_permutation.permute(p + offset) - offset);
     }
 
     /** Return the conversion of E (an integer in the range 0..size()-1)
-     *  according to the inverse of my permutation. */
-    int convertBackward(int e) {
-        int fromInd = permutation().wrap(e + (setting() - _shift));
-        int toInd = permutation().invert(fromInd);
-        return permutation().wrap(toInd - (setting() - _shift));
+     *  according to the inverse of my permutation when my setting less
+     *  my Ringstellung shift is OFFSET. */
+    int convertBackward(int e, int offset) {
+        return _permutation.wrap(_permutation.invert(e + offset) - offset);
     }
 
-    /** Returns true iff I am positioned to allow the rotor to my left
-     *  to advance. */
-    boolean atNotch() {
+    /** Returns true iff setting POSN would allow the rotor to my left to
+     *  advance. By default, I have no notches. */
+    boolean atNotch(int posn) {
         return false;
     }
 
-    /** Advance me one position, if possible. By default, does nothing. */
-    void advance() {
-    }
-
-    /** Sets the shift in the rotor according to the Ringstellung setting.
-     * @param s shift for this setting */
-    void shift(int s) {
-        _shift = s;
+    /** Returns the number of advances that would bring me from setting
+     *  POSN to a notch, or Integer.MAX_VALUE if that can never happen.
+     *  By default, I have no notches. */
+    int stepsToNotch(int posn) {
+        return Integer.MAX_VALUE;
     }
 
     @Override
@@ -105,11 +81,5 @@ class Rotor {
     private final String _name;
 
     /** The permutation implemented by this rotor in its 0 position. */
-    private Permutation _permutation;
-
-    /** My setting. */
-    private int _setting;
-
-    /** My Ringstellung shift. */
-    private int _shift;
+    private final Permutation _permutation;
 }
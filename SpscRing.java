@@ -0,0 +1,156 @@
+package enigma;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/** A bounded queue connecting one producing thread to one consuming
+ *  thread without locks.  The producer alone advances the tail and the
+ *  consumer alone advances the head, so each needs only to publish its
+ *  own counter and read the other's.  The blocking operations wait, when
+ *  the ring is full or empty, by spinning briefly and then parking until
+ *  the other thread makes progress, which lets a slow consumer hold back
+ *  its producer without either thread polling.
+ *  @author Ishaan Mauli Mishra
+ */
+class SpscRing<T> {
+
+    /** A ring holding up to CAPACITY elements, which must be a positive
+     *  power of two. */
+    SpscRing(int capacity) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("capacity must be a power "
+                                               + "of two");
+        }
+        _elements = new Object[capacity];
+        _mask = capacity - 1;
+    }
+
+    /** Returns the number of elements I can hold. */
+    int capacity() {
+        return _elements.length;
+    }
+
+    /** Add X, which must not be null, if there is room, and return true
+     *  iff it was added, waking the consumer if it is waiting.  Only the
+     *  producer may call this. */
+    boolean offer(T x) {
+        long tail = _tail.get();
+        if (tail - _headCache == _elements.length) {
+            _headCache = _head.get();
+            if (tail - _headCache == _elements.length) {
+                return false;
+            }
+        }
+        _elements[(int) tail & _mask] = x;
+        _tail.set(tail + 1);
+        wake(_consumer);
+        return true;
+    }
+
+    /** Remove and return my oldest element, or null if I am empty, waking
+     *  the producer if it is waiting.  Only the consumer may call this. */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long head = _head.get();
+        if (head == _tailCache) {
+            _tailCache = _tail.get();
+            if (head == _tailCache) {
+                return null;
+            }
+        }
+        int k = (int) head & _mask;
+        T x = (T) _elements[k];
+        _elements[k] = null;
+        _head.set(head + 1);
+        wake(_producer);
+        return x;
+    }
+
+    /** Add X, which must not be null, waiting for room as needed.  Only
+     *  the producer may call this. */
+    void put(T x) throws InterruptedException {
+        for (int tries = 0; !offer(x); tries += 1) {
+            if (tries < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                _producer = Thread.currentThread();
+                boolean added = offer(x);
+                if (!added) {
+                    LockSupport.park(this);
+                }
+                _producer = null;
+                if (added) {
+                    return;
+                }
+                checkInterrupt();
+            }
+        }
+    }
+
+    /** Remove and return my oldest element, waiting for one as needed.
+     *  Only the consumer may call this. */
+    T take() throws InterruptedException {
+        for (int tries = 0;; tries += 1) {
+            T x = poll();
+            if (x != null) {
+                return x;
+            } else if (tries < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                _consumer = Thread.currentThread();
+                x = poll();
+                if (x == null) {
+                    LockSupport.park(this);
+                }
+                _consumer = null;
+                if (x != null) {
+                    return x;
+                }
+                checkInterrupt();
+            }
+        }
+    }
+
+    /** Unpark WAITER if it is not null. */
+    private static void wake(Thread waiter) {
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /** Throw an InterruptedException if the current thread has been
+     *  interrupted, clearing its interrupt status. */
+    private static void checkInterrupt() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /** Number of attempts made by spinning before waiting threads park. */
+    private static final int SPINS = 100;
+
+    /** My elements are _elements[_head & _mask .. (_tail - 1) & _mask]. */
+    private final Object[] _elements;
+
+    /** Mask reducing counters to indices in _elements. */
+    private final int _mask;
+
+    /** Number of elements ever removed. */
+    private final AtomicLong _head = new AtomicLong();
+
+    /** Number of elements ever added. */
+    private final AtomicLong _tail = new AtomicLong();
+
+    /** The producer's last reading of _head. */
+    private long _headCache;
+
+    /** The consumer's last reading of _tail. */
+    private long _tailCache;
+
+    /** The producer, while it is parked waiting for room, else null. */
+    private volatile Thread _producer;
+
+    /** The consumer, while it is parked waiting for an element, else
+     *  null. */
+    private volatile Thread _consumer;
+}
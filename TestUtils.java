@@ -1,6 +1,9 @@
 package enigma;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Random;
 
 /** Utility definitions for use in unit tests.
  *  @author P. N. Hilfinger
@@ -18,6 +21,48 @@ class TestUtils {
         return testId + " (" + String.format(msgFormat, args) + ")";
     }
 
+    /** Return a 5-rotor, 3-pawl machine whose available rotors are the
+     *  naval rotors MOVINGROTORS, with their notches, the fixed rotors
+     *  Beta and Gamma, and the reflectors B and C.  No rotors are yet
+     *  inserted. */
+    static Machine navalMachine(String... movingRotors) {
+        Collection<Rotor> all = new ArrayList<>();
+        for (String name : movingRotors) {
+            all.add(new MovingRotor(name,
+                                    new Permutation(NAVALA.get(name), UPPER),
+                                    NAVAL_NOTCHES.get(name)));
+        }
+        for (String name : new String[] { "Beta", "Gamma" }) {
+            all.add(new FixedRotor(name, new Permutation(NAVALA.get(name),
+                                                         UPPER)));
+        }
+        for (String name : new String[] { "B", "C" }) {
+            all.add(new Reflector(name, new Permutation(NAVALA.get(name),
+                                                        UPPER)));
+        }
+        return new Machine(UPPER, 5, 3, all);
+    }
+
+    /** Return N bytes generated from SEED. */
+    static byte[] randomBytes(long seed, int n) {
+        byte[] data = new byte[n];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /** The notches of the naval moving rotors. */
+    static final HashMap<String, String> NAVAL_NOTCHES = new HashMap<>();
+    static {
+        NAVAL_NOTCHES.put("I", "Q");
+        NAVAL_NOTCHES.put("II", "E");
+        NAVAL_NOTCHES.put("III", "V");
+        NAVAL_NOTCHES.put("IV", "J");
+        NAVAL_NOTCHES.put("V", "Z");
+        NAVAL_NOTCHES.put("VI", "ZM");
+        NAVAL_NOTCHES.put("VII", "ZM");
+        NAVAL_NOTCHES.put("VIII", "ZM");
+    }
+
     /** The naval rotors in the A (0) setting. */
     static final HashMap<String, String> NAVALA = new HashMap<>();
     static {
@@ -11,7 +11,23 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         System.exit(textui.runClasses(PermutationTest.class,
-                                      MovingRotorTest.class));
+                                      AlphabetTest.class,
+                                      MovingRotorTest.class,
+                                      MachineTest.class,
+                                      ParallelConverterTest.class,
+                                      LineReaderTest.class,
+                                      BombeTest.class,
+                                      HillClimberTest.class,
+                                      ConfigFileTest.class,
+                                      LexerTest.class,
+                                      MachineBatchTest.class,
+                                      GroupFormatterTest.class,
+                                      MetricsTest.class,
+                                      DaemonTest.class,
+                                      EnigmaServiceTest.class,
+                                      ByteCatalogTest.class,
+                                      MachineStreamTest.class,
+                                      PipelineTest.class));
     }
 
 }
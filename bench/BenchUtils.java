@@ -0,0 +1,161 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/** Synthetic alphabets, rotors and machines for the benchmarks.
+ *  @author Ishaan Mauli Mishra
+ */
+class BenchUtils {
+
+    /** Return an alphabet of SIZE characters starting at 'A', as listed
+     *  by alphabetChars. */
+    static Alphabet alphabet(int size) {
+        return new Alphabet(alphabetChars(size));
+    }
+
+    /** Return the characters of alphabet(SIZE), in order: the first SIZE
+     *  characters from 'A' on that are neither controls nor spaces. */
+    static String alphabetChars(int size) {
+        StringBuilder chars = new StringBuilder();
+        for (char c = 'A'; chars.length() < size; c += 1) {
+            if (!Character.isISOControl(c) && !Character.isSpaceChar(c)
+                && !Character.isWhitespace(c)) {
+                chars.append(c);
+            }
+        }
+        return chars.toString();
+    }
+
+    /** Return cycles for a random permutation of the characters of
+     *  ALPHA, chosen by RAND. If PAIRS, the result consists only of
+     *  2-cycles covering as much of ALPHA as possible, as for a
+     *  reflector. */
+    static String randomCycles(Alphabet alpha, Random rand, boolean pairs) {
+        ArrayList<Character> chars = new ArrayList<Character>();
+        for (int i = 0; i < alpha.size(); i += 1) {
+            chars.add(alpha.toChar(i));
+        }
+        Collections.shuffle(chars, rand);
+        StringBuilder cycles = new StringBuilder();
+        int i = 0;
+        while (i < chars.size()) {
+            int n = 2;
+            if (!pairs) {
+                n = 1 + rand.nextInt(Math.min(12, chars.size() - i));
+            }
+            if (i + n > chars.size()) {
+                break;
+            }
+            cycles.append('(');
+            for (int k = i; k < i + n; k += 1) {
+                cycles.append(chars.get(k));
+            }
+            cycles.append(") ");
+            i += n;
+        }
+        return cycles.toString();
+    }
+
+    /** Return the text of a configuration file for an alphabet of SIZE
+     *  characters, a machine with NUMROTORS slots and PAWLS pawls, and
+     *  NUMROTORS randomly wired rotors chosen using SEED, one for each
+     *  slot.  The rotors are named R (the reflector), F0, F1, ... (fixed)
+     *  and M0, M1, ... (moving, with notches at their first two
+     *  settings). */
+    static String config(int size, int numRotors, int pawls, long seed) {
+        Alphabet alpha = alphabet(size);
+        Random rand = new Random(seed);
+        StringBuilder config = new StringBuilder();
+        config.append(alphabetChars(size)).append('\n');
+        config.append(numRotors).append(' ').append(pawls).append('\n');
+        config.append("R R ").append(randomCycles(alpha, rand, true))
+            .append('\n');
+        for (int i = 0; i < numRotors - pawls - 1; i += 1) {
+            config.append('F').append(i).append(" N ")
+                .append(randomCycles(alpha, rand, false)).append('\n');
+        }
+        for (int i = 0; i < pawls; i += 1) {
+            config.append('M').append(i).append(" M")
+                .append(alpha.toChar(0)).append(alpha.toChar(1)).append(' ')
+                .append(randomCycles(alpha, rand, false)).append('\n');
+        }
+        return config.toString();
+    }
+
+    /** Return a settings line (without the leading '*') for the machine
+     *  described by config(SIZE, NUMROTORS, PAWLS, SEED), choosing
+     *  positions and a plugboard of PLUGS pairs using RAND. */
+    static String settings(int size, int numRotors, int pawls, int plugs,
+                           Random rand) {
+        Alphabet alpha = alphabet(size);
+        StringBuilder settings = new StringBuilder(" R");
+        for (int i = 0; i < numRotors - pawls - 1; i += 1) {
+            settings.append(" F").append(i);
+        }
+        for (int i = 0; i < pawls; i += 1) {
+            settings.append(" M").append(i);
+        }
+        settings.append(' ');
+        for (int i = 1; i < numRotors; i += 1) {
+            settings.append(alpha.toChar(rand.nextInt(size)));
+        }
+        settings.append(' ').append(plugboard(alpha, rand, plugs));
+        return settings.toString();
+    }
+
+    /** Return cycles for a plugboard of ALPHA swapping PLUGS random pairs,
+     *  chosen by RAND. */
+    static String plugboard(Alphabet alpha, Random rand, int plugs) {
+        String pairs = randomCycles(alpha, rand, true);
+        return pairs.substring(0, Math.min(5 * plugs, pairs.length()));
+    }
+
+    /** Return a machine built from config(SIZE, NUMROTORS, PAWLS, SEED),
+     *  set up with settings(SIZE, NUMROTORS, PAWLS, 10, ...). */
+    static Machine machine(int size, int numRotors, int pawls, long seed) {
+        Alphabet alpha = alphabet(size);
+        Random rand = new Random(seed);
+        ArrayList<Rotor> all = new ArrayList<Rotor>();
+        all.add(new Reflector("R", new Permutation(
+            randomCycles(alpha, rand, true), alpha)));
+        for (int i = 0; i < numRotors - pawls - 1; i += 1) {
+            all.add(new FixedRotor("F" + i, new Permutation(
+                randomCycles(alpha, rand, false), alpha)));
+        }
+        for (int i = 0; i < pawls; i += 1) {
+            all.add(new MovingRotor("M" + i, new Permutation(
+                randomCycles(alpha, rand, false), alpha),
+                "" + alpha.toChar(0) + alpha.toChar(1)));
+        }
+        Machine M = new Machine(alpha, numRotors, pawls, all);
+        String[] rotors = new String[numRotors];
+        rotors[0] = "R";
+        for (int i = 1; i < numRotors - pawls; i += 1) {
+            rotors[i] = "F" + (i - 1);
+        }
+        for (int i = 0; i < pawls; i += 1) {
+            rotors[numRotors - pawls + i] = "M" + i;
+        }
+        M.insertRotors(rotors);
+        StringBuilder setting = new StringBuilder();
+        for (int i = 1; i < numRotors; i += 1) {
+            setting.append(alpha.toChar(rand.nextInt(size)));
+        }
+        M.setRotors(setting.toString());
+        M.setPlugboard(new Permutation(plugboard(alpha, rand, 10), alpha));
+        return M;
+    }
+
+    /** Return a message of LEN random characters of ALPHA, chosen using
+     *  SEED. */
+    static char[] message(Alphabet alpha, int len, long seed) {
+        Random rand = new Random(seed);
+        char[] msg = new char[len];
+        for (int i = 0; i < len; i += 1) {
+            msg[i] = alpha.toChar(rand.nextInt(alpha.size()));
+        }
+        return msg;
+    }
+}
@@ -0,0 +1,152 @@
+package enigma;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/** Writes synthetic configuration and input files for load tests, of any
+ *  size: an alphabet of a given number of symbols, a machine of a given
+ *  number of slots and pawls, and input of a given number of sections,
+ *  message line length and plugboard pairs per settings line.  The
+ *  input is written as it is generated, so files of many gigabytes need
+ *  no more memory than small ones.  The same parameters always give the
+ *  same files.
+ *  @author Ishaan Mauli Mishra
+ */
+class LoadGenerator {
+
+    /** A generator of files with an alphabet of SIZE symbols, a machine
+     *  with ROTORS slots and PAWLS pawls, and input of CHARS message
+     *  characters divided evenly among SECTIONS sections, in lines of
+     *  LINE characters, under settings lines with PLUGS plugboard pairs,
+     *  all chosen using SEED. */
+    LoadGenerator(int size, int rotors, int pawls, int sections, int line,
+                  int plugs, long chars, long seed) {
+        if (size < 2 || rotors < 2 || pawls < 0 || pawls >= rotors
+            || sections < 1 || line < 1 || plugs < 0 || chars < 0) {
+            throw new IllegalArgumentException("bad load parameters");
+        }
+        _size = size;
+        _rotors = rotors;
+        _pawls = pawls;
+        _sections = sections;
+        _line = line;
+        _plugs = plugs;
+        _chars = chars;
+        _seed = seed;
+    }
+
+    /** Write the configuration file to CONFIG. */
+    void writeConfig(Path config) throws IOException {
+        Files.writeString(config,
+                          BenchUtils.config(_size, _rotors, _pawls, _seed),
+                          StandardCharsets.UTF_8);
+    }
+
+    /** Write the input file to INPUT. */
+    void writeInput(Path input) throws IOException {
+        char[] symbols = BenchUtils.alphabetChars(_size).toCharArray();
+        Random rand = new Random(_seed + 1);
+        char[] text = new char[_line];
+        try (Writer out = new BufferedWriter(
+                 Files.newBufferedWriter(input, StandardCharsets.UTF_8),
+                 BUFFER_SIZE)) {
+            for (int s = 0; s < _sections; s += 1) {
+                long n = _chars / _sections
+                    + (s < _chars % _sections ? 1 : 0);
+                out.write('*');
+                out.write(BenchUtils.settings(_size, _rotors, _pawls,
+                                              _plugs, rand));
+                out.write('\n');
+                while (n > 0) {
+                    int len = (int) Math.min(_line, n);
+                    for (int i = 0; i < len; i += 1) {
+                        text[i] = symbols[rand.nextInt(_size)];
+                    }
+                    out.write(text, 0, len);
+                    out.write('\n');
+                    n -= len;
+                }
+            }
+        }
+    }
+
+    /** Returns the number of message characters in the input. */
+    long chars() {
+        return _chars;
+    }
+
+    /** Write files as described by ARGS, which are options
+     *  [--size=N] [--rotors=N] [--pawls=N] [--sections=N] [--line=N]
+     *  [--plugs=N] [--chars=N] [--seed=N], followed by the names of the
+     *  configuration and input files to write.  The defaults are those of
+     *  an M4 with a 26-letter alphabet: 5 slots, 3 pawls, and one section
+     *  of 10**8 characters in lines of 1000, with 10 plugboard pairs. */
+    public static void main(String... args) throws IOException {
+        long[] values = { 26, 5, 3, 1, 1000, 10, 100_000_000L, 1 };
+        int k = 0;
+        for (; k < args.length && args[k].startsWith("--"); k += 1) {
+            int eq = args[k].indexOf('=');
+            int which = eq == -1 ? -1
+                : Arrays.asList(OPTIONS).indexOf(args[k].substring(0, eq));
+            if (which == -1) {
+                usage();
+            }
+            try {
+                values[which] = Long.parseLong(args[k].substring(eq + 1));
+            } catch (NumberFormatException excp) {
+                usage();
+            }
+        }
+        if (args.length - k != 2) {
+            usage();
+        }
+        LoadGenerator gen =
+            new LoadGenerator((int) values[0], (int) values[1],
+                              (int) values[2], (int) values[3],
+                              (int) values[4], (int) values[5], values[6],
+                              values[7]);
+        gen.writeConfig(Paths.get(args[k]));
+        gen.writeInput(Paths.get(args[k + 1]));
+    }
+
+    /** Print a usage message and exit with code 1. */
+    private static void usage() {
+        System.err.println("Usage: java enigma.LoadGenerator [--size=N] "
+                           + "[--rotors=N] [--pawls=N] [--sections=N] "
+                           + "[--line=N] [--plugs=N] [--chars=N] "
+                           + "[--seed=N] CONFIG INPUT");
+        System.exit(1);
+    }
+
+    /** Names of the options of main, in the order of their values. */
+    private static final String[] OPTIONS = {
+        "--size", "--rotors", "--pawls", "--sections", "--line", "--plugs",
+        "--chars", "--seed",
+    };
+
+    /** Size of the output buffer, in chars. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Number of symbols in the alphabet. */
+    private final int _size;
+
+    /** Number of rotor slots and of pawls. */
+    private final int _rotors, _pawls;
+
+    /** Number of sections, length of message lines and number of
+     *  plugboard pairs in each settings line. */
+    private final int _sections, _line, _plugs;
+
+    /** Number of message characters. */
+    private final long _chars;
+
+    /** Seed of the random choices. */
+    private final long _seed;
+}
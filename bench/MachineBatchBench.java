@@ -0,0 +1,119 @@
+package enigma;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of converting one message under many keys, with a
+ *  MachineBatch (using the Vector API when the JVM has the module
+ *  jdk.incubator.vector), with a MachineBatch using only its scalar
+ *  loops, and with one Machine per key.  Each benchmark converts
+ *  the message once under every key, so its throughput times length
+ *  times lanes is characters per unit time.
+ *  @author Ishaan Mauli Mishra
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MachineBatchBench {
+
+    /** Number of keys. */
+    @Param({ "16", "1024" })
+    public int lanes;
+
+    /** Length of the converted message. */
+    @Param({ "100" })
+    public int length;
+
+    /** Set up the batch, the machines and the message. */
+    @Setup
+    public void setUp() {
+        Machine config = BenchUtils.machine(26, 5, 3, 1);
+        Alphabet alpha = config.alphabet();
+        Random rand = new Random(2);
+        List<String[]> orders = config.rotorOrders();
+        _batch = new MachineBatch(config, lanes);
+        _scalar = new MachineBatch(config, lanes, false);
+        _machines = new Machine[lanes];
+        for (int k = 0; k < lanes; k += 1) {
+            String[] order = orders.get(rand.nextInt(orders.size()));
+            int[] settings = new int[4], rings = new int[4];
+            for (int i = 0; i < 4; i += 1) {
+                settings[i] = rand.nextInt(alpha.size());
+                rings[i] = rand.nextInt(alpha.size());
+            }
+            Permutation plugs = new Permutation(
+                BenchUtils.plugboard(alpha, rand, 10), alpha);
+            _batch.setKey(k, order, settings, rings, plugs);
+            _scalar.setKey(k, order, settings, rings, plugs);
+            _machines[k] = config.copy();
+            _machines[k].insertRotors(order);
+            _machines[k].setRotors(settings);
+            _machines[k].setRings(rings);
+            _machines[k].setPlugboard(plugs);
+        }
+        char[] msg = BenchUtils.message(alpha, length, 3);
+        _in = new int[length];
+        for (int i = 0; i < length; i += 1) {
+            _in[i] = alpha.toInt(msg[i]);
+        }
+        _out = new int[lanes][length];
+    }
+
+    /** Convert the message under every key with the batch. */
+    @Benchmark
+    public int[][] batch() {
+        _batch.convert(_in, length, _out);
+        return _out;
+    }
+
+    /** Convert the message under every key with the scalar batch. */
+    @Benchmark
+    public int[][] scalarBatch() {
+        _scalar.convert(_in, length, _out);
+        return _out;
+    }
+
+    /** Convert the message under every key with separate machines. */
+    @Benchmark
+    public int[][] machines() {
+        for (int k = 0; k < lanes; k += 1) {
+            Machine M = _machines[k];
+            int[] out = _out[k];
+            for (int i = 0; i < length; i += 1) {
+                out[i] = M.convert(_in[i]);
+            }
+        }
+        return _out;
+    }
+
+    /** The keys, as a batch. */
+    private MachineBatch _batch;
+
+    /** The keys, as a batch that does not use the Vector API. */
+    private MachineBatch _scalar;
+
+    /** The keys, as machines. */
+    private Machine[] _machines;
+
+    /** The message, as indices. */
+    private int[] _in;
+
+    /** Destination of the converted messages. */
+    private int[][] _out;
+}
@@ -0,0 +1,87 @@
+package enigma;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Machine.advance and Machine.convert.  The convert
+ *  benchmarks each convert one message of the given length, so their
+ *  throughput times that length is characters per unit time.
+ *  @author Ishaan Mauli Mishra
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MachineBench {
+
+    /** Size of the machine's alphabet. */
+    @Param({ "26", "256" })
+    public int size;
+
+    /** Length of the converted message. */
+    @Param({ "100", "10000", "1000000" })
+    public int length;
+
+    /** Set up _machine and the message buffers. */
+    @Setup
+    public void setUp() {
+        _machine = BenchUtils.machine(size, 5, 3, 1);
+        _in = BenchUtils.message(_machine.alphabet(), length, 2);
+        _inString = new String(_in);
+        _out = new char[length];
+    }
+
+    /** Advance the machine once. */
+    @Benchmark
+    public void advance() {
+        _machine.advance();
+    }
+
+    /** Convert one character index. */
+    @Benchmark
+    public int convertIndex() {
+        _next = _next + 1 == size ? 0 : _next + 1;
+        return _machine.convert(_next);
+    }
+
+    /** Convert the message with the array interface. */
+    @Benchmark
+    public char[] convertArray() {
+        _machine.convert(_in, 0, length, _out, 0);
+        return _out;
+    }
+
+    /** Convert the message as a String. */
+    @Benchmark
+    public String convertString() {
+        return _machine.convert(_inString);
+    }
+
+    /** The machine measured. */
+    private Machine _machine;
+
+    /** The message to convert. */
+    private char[] _in;
+
+    /** The message to convert, as a String. */
+    private String _inString;
+
+    /** Destination of converted messages. */
+    private char[] _out;
+
+    /** The next index to use. */
+    private int _next;
+}
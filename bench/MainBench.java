@@ -0,0 +1,101 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** End-to-end benchmark of Main over generated configuration and input
+ *  files.
+ *  @author Ishaan Mauli Mishra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MainBench {
+
+    /** Size of the alphabet (at most 62, keeping the files ASCII). */
+    @Param({ "26", "62" })
+    public int size;
+
+    /** Number of sections in the input. */
+    @Param({ "1", "1000" })
+    public int sections;
+
+    /** Total number of message characters in the input. */
+    @Param({ "10000000" })
+    public int chars;
+
+    /** Write the configuration and input files. */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        _dir = Files.createTempDirectory("enigma-bench");
+        _config = _dir.resolve("bench.conf");
+        _input = _dir.resolve("bench.in");
+        _output = _dir.resolve("bench.out");
+        Files.writeString(_config, BenchUtils.config(size, 5, 3, 1));
+        Alphabet alpha = BenchUtils.alphabet(size);
+        Random rand = new Random(2);
+        int perSection = chars / sections;
+        try (Writer in = Files.newBufferedWriter(_input)) {
+            for (int s = 0; s < sections; s += 1) {
+                in.write("*" + BenchUtils.settings(size, 5, 3, 10, rand)
+                         + "\n");
+                for (int i = 0; i < perSection; i += LINE) {
+                    int n = Math.min(LINE, perSection - i);
+                    in.write(BenchUtils.message(alpha, n, rand.nextLong()));
+                    in.write('\n');
+                }
+            }
+        }
+    }
+
+    /** Remove the generated files. */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(_config);
+        Files.deleteIfExists(_input);
+        Files.deleteIfExists(_output);
+        Files.deleteIfExists(_dir);
+    }
+
+    /** Run Main over the generated input. */
+    @Benchmark
+    public void main() {
+        Main.main(_config.toString(), _input.toString(), _output.toString());
+    }
+
+    /** Length of generated message lines. */
+    private static final int LINE = 1000;
+
+    /** Directory holding the generated files. */
+    private Path _dir;
+
+    /** Generated configuration file. */
+    private Path _config;
+
+    /** Generated input file. */
+    private Path _input;
+
+    /** Output file. */
+    private Path _output;
+}
@@ -0,0 +1,60 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Permutation.permute and Permutation.invert.
+ *  @author Ishaan Mauli Mishra
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermutationBench {
+
+    /** Size of the alphabet permuted. */
+    @Param({ "26", "256", "4096" })
+    public int size;
+
+    /** Set up _perm. */
+    @Setup
+    public void setUp() {
+        Alphabet alpha = BenchUtils.alphabet(size);
+        _perm = new Permutation(BenchUtils.randomCycles(alpha, new Random(1),
+                                                        false), alpha);
+    }
+
+    /** Permute each index in turn. */
+    @Benchmark
+    public int permute() {
+        _next = _next + 1 == size ? 0 : _next + 1;
+        return _perm.permute(_next);
+    }
+
+    /** Invert each index in turn. */
+    @Benchmark
+    public int invert() {
+        _next = _next + 1 == size ? 0 : _next + 1;
+        return _perm.invert(_next);
+    }
+
+    /** The permutation measured. */
+    private Permutation _perm;
+
+    /** The next index to use. */
+    private int _next;
+}
@@ -0,0 +1,350 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** A throughput regression suite: runs Main over the generated load (see
+ *  LoadGenerator) of each scenario listed in a baseline file, each in a
+ *  JVM of its own, and compares its throughput, peak resident set size
+ *  and garbage collection time with those recorded in the file.
+ *
+ *  Each line of the baseline file describes a scenario as
+ *  <pre>
+ *    NAME SIZE ROTORS PAWLS SECTIONS LINE PLUGS CHARS MCHARS/S RSS-MB GC-MS
+ *  </pre>
+ *  where the parameters SIZE through CHARS are those of LoadGenerator, and
+ *  the last three fields are the baseline: the message characters
+ *  converted per microsecond, the peak resident set size in megabytes,
+ *  and the milliseconds spent in garbage collection, with "-" for values
+ *  not yet measured.  Text from '#' to the end of a line is ignored.
+ *  The generated files are kept in a work directory and reused by later
+ *  runs with the same parameters.
+ *  @author Ishaan Mauli Mishra
+ */
+class Regression {
+
+    /** Run the scenarios as described by ARGS, which are options
+     *  <pre>
+     *    --baselines=FILE   the baseline file (default bench/baselines.txt)
+     *    --dir=DIR          the work directory (default: enigma-regress
+     *                       in the temporary directory)
+     *    --threshold=PCT    the regression allowed, in percent (default 15)
+     *    --runs=N           runs of each scenario, of which the best
+     *                       values are kept (default 1)
+     *    --only=NAME        run only scenario NAME
+     *    --scale=F          multiply the characters of each scenario by F,
+     *                       which disables comparison (default 1)
+     *    --jvm=OPTS         space-separated options for the JVMs running
+     *                       Main
+     *    --update           record the measured values as the baselines
+     *  </pre>
+     *  Exits with code 1 if any scenario regressed. */
+    public static void main(String... args) throws Exception {
+        if (args.length > 0 && args[0].equals(CHILD)) {
+            child(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        Regression suite = new Regression();
+        for (String arg : args) {
+            suite.option(arg);
+        }
+        System.exit(suite.run() ? 0 : 1);
+    }
+
+    /** Set the option ARG. */
+    private void option(String arg) {
+        int eq = arg.indexOf('=');
+        String name = eq == -1 ? arg : arg.substring(0, eq);
+        String value = eq == -1 ? null : arg.substring(eq + 1);
+        try {
+            switch (name) {
+            case "--baselines":
+                _baselines = Paths.get(value);
+                return;
+            case "--dir":
+                _dir = Paths.get(value);
+                return;
+            case "--threshold":
+                _threshold = Double.parseDouble(value) / 100;
+                return;
+            case "--runs":
+                _runs = Integer.parseInt(value);
+                return;
+            case "--only":
+                _only = value;
+                return;
+            case "--scale":
+                _scale = Double.parseDouble(value);
+                return;
+            case "--jvm":
+                _jvmOptions = Arrays.asList(value.trim().split("\\s+"));
+                return;
+            case "--update":
+                _update = true;
+                return;
+            default:
+                break;
+            }
+        } catch (NullPointerException | NumberFormatException excp) {
+            throw new IllegalArgumentException("bad option " + arg);
+        }
+        throw new IllegalArgumentException("unknown option " + arg);
+    }
+
+    /** Run my scenarios, print a report, and update the baselines if
+     *  requested.  Returns true iff none regressed. */
+    private boolean run() throws IOException, InterruptedException {
+        if (_update && _scale != 1) {
+            throw new IllegalArgumentException("cannot record scaled "
+                                               + "baselines");
+        }
+        List<String> lines = Files.readAllLines(_baselines,
+                                                StandardCharsets.UTF_8);
+        Files.createDirectories(_dir);
+        boolean passed = true;
+        System.out.printf("%-16s %12s %9s %9s %9s  %s%n", "scenario",
+                          "chars", "Mchars/s", "RSS MB", "GC ms",
+                          "result");
+        for (int i = 0; i < lines.size(); i += 1) {
+            String[] fields = fields(lines.get(i));
+            if (fields.length == 0) {
+                continue;
+            }
+            if (fields.length != FIELDS) {
+                throw new IllegalArgumentException(
+                    String.format("%s:%d: expected %d fields", _baselines,
+                                  i + 1, FIELDS));
+            }
+            if (_only != null && !_only.equals(fields[0])) {
+                continue;
+            }
+            double[] measured = measure(fields);
+            String verdict = verdict(fields, measured);
+            passed &= !verdict.startsWith("REGRESSED");
+            System.out.printf("%-16s %12d %9.2f %9.1f %9.0f  %s%n",
+                              fields[0], chars(fields), measured[0],
+                              measured[1], measured[2], verdict);
+            if (_update) {
+                lines.set(i, String.format(
+                    "%-14s %4s %3s %3s %5s %4s %3s %10s %6.2f %4.0f %4.0f",
+                    fields[0], fields[1], fields[2], fields[3], fields[4],
+                    fields[5], fields[6], fields[7], measured[0],
+                    Math.ceil(measured[1]), measured[2]));
+            }
+        }
+        if (_update) {
+            Files.write(_baselines, lines, StandardCharsets.UTF_8);
+        }
+        return passed;
+    }
+
+    /** Returns the number of message characters of the scenario described
+     *  by FIELDS, after scaling. */
+    private long chars(String[] fields) {
+        return Math.round(Long.parseLong(fields[7]) * _scale);
+    }
+
+    /** Returns the best throughput (in characters per microsecond), peak
+     *  resident set size (in megabytes, or -1 if unknown) and garbage
+     *  collection time (in milliseconds) of my runs of Main over the load
+     *  of the scenario described by FIELDS, generating it if needed. */
+    private double[] measure(String[] fields)
+        throws IOException, InterruptedException {
+        long chars = chars(fields);
+        String base = String.format("%s-%s-%d", fields[0],
+                                    String.join("-", Arrays.copyOfRange(
+                                                    fields, 1, 7)),
+                                    chars);
+        Path config = _dir.resolve(base + ".conf");
+        Path input = _dir.resolve(base + ".in");
+        Path output = _dir.resolve(fields[0] + ".out");
+        if (!Files.exists(input)) {
+            LoadGenerator gen =
+                new LoadGenerator(Integer.parseInt(fields[1]),
+                                  Integer.parseInt(fields[2]),
+                                  Integer.parseInt(fields[3]),
+                                  Integer.parseInt(fields[4]),
+                                  Integer.parseInt(fields[5]),
+                                  Integer.parseInt(fields[6]), chars, SEED);
+            gen.writeConfig(config);
+            Path partial = _dir.resolve(base + ".in.part");
+            gen.writeInput(partial);
+            Files.move(partial, input);
+        }
+        double[] best = { 0, Double.MAX_VALUE, Double.MAX_VALUE };
+        for (int r = 0; r < _runs; r += 1) {
+            double[] result = runMain(config, input, output);
+            best[0] = Math.max(best[0], chars / (result[0] / 1e3));
+            best[1] = Math.min(best[1], result[1]);
+            best[2] = Math.min(best[2], result[2]);
+        }
+        Files.deleteIfExists(output);
+        return best;
+    }
+
+    /** Returns the time taken (in nanoseconds), peak resident set size
+     *  (in megabytes, or -1 if unknown) and garbage collection time (in
+     *  milliseconds) of a run of Main in a new JVM converting INPUT with
+     *  CONFIG into OUTPUT. */
+    private double[] runMain(Path config, Path input, Path output)
+        throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(ProcessHandle.current().info().command()
+                    .orElse("java"));
+        command.add("-Dfile.encoding=UTF-8");
+        command.addAll(_jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Regression.class.getName());
+        command.add(CHILD);
+        command.add(config.toString());
+        command.add(input.toString());
+        command.add(output.toString());
+        Process child = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String result = null;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(
+                 child.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = out.readLine(); line != null;
+                 line = out.readLine()) {
+                if (line.startsWith(RESULT)) {
+                    result = line;
+                }
+            }
+        }
+        if (child.waitFor() != 0 || result == null) {
+            throw new IllegalStateException("Main failed on " + input);
+        }
+        String[] values = fields(result.substring(RESULT.length()));
+        return new double[] {
+            Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+            Double.parseDouble(values[2]),
+        };
+    }
+
+    /** Returns a description of MEASURED, the values returned by measure,
+     *  against the baselines in FIELDS, starting with "REGRESSED" if any
+     *  is worse than its baseline by more than the threshold. */
+    private String verdict(String[] fields, double[] measured) {
+        if (_scale != 1) {
+            return "not compared (scaled)";
+        }
+        List<String> worse = new ArrayList<String>();
+        if (!fields[8].equals("-")
+            && measured[0] < Double.parseDouble(fields[8])
+                             * (1 - _threshold)) {
+            worse.add("throughput");
+        }
+        if (!fields[9].equals("-") && measured[1] >= 0
+            && measured[1] > Double.parseDouble(fields[9]) * (1 + _threshold)
+                             + RSS_SLACK) {
+            worse.add("RSS");
+        }
+        if (!fields[10].equals("-")
+            && measured[2] > Double.parseDouble(fields[10])
+                             * (1 + _threshold) + GC_SLACK) {
+            worse.add("GC time");
+        }
+        if (!worse.isEmpty()) {
+            return "REGRESSED: " + String.join(", ", worse) + " (baseline "
+                + fields[8] + " Mchars/s, " + fields[9] + " MB, "
+                + fields[10] + " ms)";
+        }
+        return "ok";
+    }
+
+    /** Returns the whitespace-separated fields of LINE before any '#'. */
+    private static String[] fields(String line) {
+        int hash = line.indexOf('#');
+        String text = (hash == -1 ? line : line.substring(0, hash)).trim();
+        return text.isEmpty() ? new String[0] : text.split("\\s+");
+    }
+
+    /** Run Main on ARGS in this JVM, then print a line starting with
+     *  RESULT that gives the time it took in nanoseconds, the peak
+     *  resident set size of the process in megabytes (-1 if unknown) and
+     *  the total garbage collection time in milliseconds. */
+    private static void child(String[] args) throws IOException {
+        long start = System.nanoTime();
+        Main.main(args);
+        long nanos = System.nanoTime() - start;
+        long gc = 0;
+        for (GarbageCollectorMXBean bean
+                 : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gc += Math.max(bean.getCollectionTime(), 0);
+        }
+        System.out.printf("%s%d %.1f %d%n", RESULT, nanos, peakRss(), gc);
+    }
+
+    /** Returns the peak resident set size of this process in megabytes,
+     *  or -1 if it is not known. */
+    private static double peakRss() {
+        try {
+            for (String line : Files.readAllLines(
+                     Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    String[] f = fields(line.substring(6));
+                    return Long.parseLong(f[0]) / 1024.0;
+                }
+            }
+        } catch (IOException | NumberFormatException excp) {
+            return -1;
+        }
+        return -1;
+    }
+
+    /** First argument of main in the JVMs running Main. */
+    private static final String CHILD = "--child";
+
+    /** Start of the line by which a child reports its results. */
+    private static final String RESULT = "RESULT ";
+
+    /** Number of fields in a line of the baseline file. */
+    private static final int FIELDS = 11;
+
+    /** Seed of all generated loads. */
+    private static final long SEED = 1;
+
+    /** Megabytes by which the peak RSS may exceed its allowance, to absorb
+     *  the JVM's own variation. */
+    private static final double RSS_SLACK = 16;
+
+    /** Milliseconds by which the GC time may exceed its allowance, to
+     *  absorb noise in short pauses. */
+    private static final double GC_SLACK = 50;
+
+    /** The baseline file. */
+    private Path _baselines = Paths.get("bench", "baselines.txt");
+
+    /** Directory holding generated files. */
+    private Path _dir = Paths.get(System.getProperty("java.io.tmpdir"),
+                                  "enigma-regress");
+
+    /** Fraction by which a value may be worse than its baseline. */
+    private double _threshold = 0.15;
+
+    /** Number of runs of each scenario. */
+    private int _runs = 1;
+
+    /** Name of the only scenario to run, or null for all. */
+    private String _only;
+
+    /** Factor applied to the characters of each scenario. */
+    private double _scale = 1;
+
+    /** Options of the JVMs running Main. */
+    private List<String> _jvmOptions = new ArrayList<String>();
+
+    /** True iff the baselines are to be replaced by the measurements. */
+    private boolean _update;
+}
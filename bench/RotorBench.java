@@ -0,0 +1,64 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Rotor.convertForward and Rotor.convertBackward.
+ *  @author Ishaan Mauli Mishra
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotorBench {
+
+    /** Size of the rotor's alphabet. */
+    @Param({ "26", "256" })
+    public int size;
+
+    /** Set up _rotor. */
+    @Setup
+    public void setUp() {
+        Alphabet alpha = BenchUtils.alphabet(size);
+        _rotor = new MovingRotor("M", new Permutation(
+            BenchUtils.randomCycles(alpha, new Random(1), false), alpha),
+            "A");
+    }
+
+    /** Convert each index in turn forward. */
+    @Benchmark
+    public int convertForward() {
+        _next = _next + 1 == size ? 0 : _next + 1;
+        return _rotor.convertForward(_next, OFFSET);
+    }
+
+    /** Convert each index in turn backward. */
+    @Benchmark
+    public int convertBackward() {
+        _next = _next + 1 == size ? 0 : _next + 1;
+        return _rotor.convertBackward(_next, OFFSET);
+    }
+
+    /** Setting less Ringstellung shift at which the rotor is measured. */
+    private static final int OFFSET = 2;
+
+    /** The rotor measured. */
+    private Rotor _rotor;
+
+    /** The next index to use. */
+    private int _next;
+}